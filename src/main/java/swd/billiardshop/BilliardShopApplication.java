@@ -2,8 +2,10 @@ package swd.billiardshop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class BilliardShopApplication {
 
     public static void main(String[] args) {
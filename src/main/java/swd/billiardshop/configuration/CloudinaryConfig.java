@@ -1,11 +1,25 @@
 package swd.billiardshop.configuration;
 
 import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
+import org.apache.http.HttpHost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 public class CloudinaryConfig {
 
@@ -21,13 +35,52 @@ public class CloudinaryConfig {
     @Value("${cloudinary.secure:true}")
     private boolean secure;
 
+    @Value("${http-client.connect-timeout-ms:2000}")
+    private int connectTimeoutMillis;
+
+    @Value("${http-client.cloudinary.read-timeout-ms:30000}")
+    private int readTimeoutMillis;
+
+    @Value("${http-client.cloudinary.max-connections:10}")
+    private int maxConnections;
+
     @Bean
     public Cloudinary cloudinary() {
-        return new Cloudinary(ObjectUtils.asMap(
-                "cloud_name", cloudName,
-                "api_key", apiKey,
-                "api_secret", apiSecret,
-                "secure", secure
-        ));
+        Map<String, Object> config = new HashMap<>();
+        config.put("cloud_name", cloudName);
+        config.put("api_key", apiKey);
+        config.put("api_secret", apiSecret);
+        config.put("secure", secure);
+        // the SDK builds its own Apache client around this manager, which bounds and reuses its connections
+        config.put("connectionManager", connectionManager());
+        return new Cloudinary(config);
+    }
+
+    private PoolingHttpClientConnectionManager connectionManager() {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", new PlainConnectionSocketFactory() {
+                    @Override
+                    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+                        return super.connectSocket(withDefault(connectTimeout), socket, host, remoteAddress, localAddress, context);
+                    }
+                })
+                .register("https", new SSLConnectionSocketFactory(SSLContexts.createSystemDefault()) {
+                    @Override
+                    public Socket connectSocket(int connectTimeout, Socket socket, HttpHost host, InetSocketAddress remoteAddress,
+                                                InetSocketAddress localAddress, HttpContext context) throws IOException {
+                        return super.connectSocket(withDefault(connectTimeout), socket, host, remoteAddress, localAddress, context);
+                    }
+                })
+                .build());
+        manager.setMaxTotal(maxConnections);
+        manager.setDefaultMaxPerRoute(maxConnections);
+        manager.setDefaultSocketConfig(SocketConfig.custom().setSoTimeout(readTimeoutMillis).build());
+        return manager;
+    }
+
+    // the SDK only passes a connect timeout when a call sets one, otherwise it would wait forever
+    private int withDefault(int connectTimeout) {
+        return connectTimeout > 0 ? connectTimeout : connectTimeoutMillis;
     }
 }
@@ -0,0 +1,126 @@
+package swd.billiardshop.configuration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Per-client bulkhead, gzip negotiation and latency recording for one outbound RestTemplate.
+ * A call holds its bulkhead permit until the response is closed, so slow body reads count against the limit.
+ */
+public class OutboundHttpInterceptor implements ClientHttpRequestInterceptor {
+    private final String client;
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+    private final OutboundHttpMetrics metrics;
+
+    public OutboundHttpInterceptor(String client, int maxConcurrent, long acquireTimeoutMillis, OutboundHttpMetrics metrics) {
+        this.client = client;
+        this.permits = new Semaphore(maxConcurrent);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                metrics.rejected(client);
+                throw new IOException("Too many concurrent calls to " + client + " (" + request.getURI().getHost() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + client + " bulkhead", e);
+        }
+        String endpoint = client + " " + request.getMethod() + " " + request.getURI().getHost() + request.getURI().getPath();
+        long start = System.nanoTime();
+        if (!request.getHeaders().containsKey(HttpHeaders.ACCEPT_ENCODING)) {
+            request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        }
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            metrics.record(endpoint, elapsedMillis(start), true);
+            throw e;
+        }
+        return new Completion(response, endpoint, start);
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    /**
+     * Response wrapper that unpacks gzip bodies and, on close, records the call and frees the permit.
+     */
+    private class Completion implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final String endpoint;
+        private final long start;
+        private final boolean gzip;
+        private boolean closed;
+        private InputStream body;
+
+        private Completion(ClientHttpResponse delegate, String endpoint, long start) {
+            this.delegate = delegate;
+            this.endpoint = endpoint;
+            this.start = start;
+            this.gzip = "gzip".equalsIgnoreCase(delegate.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            if (!gzip) return delegate.getHeaders();
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(delegate.getHeaders());
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) body = gzip ? new GZIPInputStream(delegate.getBody()) : delegate.getBody();
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            boolean failed;
+            try {
+                failed = delegate.getStatusCode().is5xxServerError();
+            } catch (IOException e) {
+                failed = true;
+            }
+            try {
+                delegate.close();
+            } finally {
+                permits.release();
+                metrics.record(endpoint, elapsedMillis(start), failed);
+            }
+        }
+    }
+}
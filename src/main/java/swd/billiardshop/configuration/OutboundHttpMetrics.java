@@ -0,0 +1,92 @@
+package swd.billiardshop.configuration;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of outbound HTTP calls, one per endpoint (client, method, host and path),
+ * plus the number of calls each client's bulkhead turned away.
+ */
+@Component
+public class OutboundHttpMetrics {
+    // upper bounds of the latency buckets in milliseconds; the last bucket is open-ended
+    private static final long[] BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private final ConcurrentHashMap<String, Histogram> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> rejected = new ConcurrentHashMap<>();
+
+    private static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_MS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalMs = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one call; failed means an I/O error or a 5xx response.
+     */
+    public void record(String endpoint, long elapsedMs, boolean failed) {
+        Histogram h = endpoints.computeIfAbsent(endpoint, k -> new Histogram());
+        int i = 0;
+        while (i < BOUNDS_MS.length && elapsedMs > BOUNDS_MS[i]) i++;
+        h.buckets[i].increment();
+        h.count.increment();
+        h.totalMs.add(elapsedMs);
+        if (failed) h.errors.increment();
+    }
+
+    public void rejected(String client) {
+        rejected.computeIfAbsent(client, k -> new LongAdder()).increment();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> byEndpoint = new TreeMap<>();
+        endpoints.forEach((endpoint, h) -> {
+            long[] counts = new long[h.buckets.length];
+            for (int i = 0; i < counts.length; i++) counts[i] = h.buckets[i].sum();
+            long n = h.count.sum();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("count", n);
+            m.put("errors", h.errors.sum());
+            m.put("meanMs", n == 0 ? 0 : h.totalMs.sum() / n);
+            // percentiles are reported as the upper bound of the bucket they fall in
+            m.put("p50Ms", percentile(counts, 0.50));
+            m.put("p95Ms", percentile(counts, 0.95));
+            m.put("p99Ms", percentile(counts, 0.99));
+            Map<String, Long> buckets = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                buckets.put(i < BOUNDS_MS.length ? "le" + BOUNDS_MS[i] : "gt" + BOUNDS_MS[BOUNDS_MS.length - 1], counts[i]);
+            }
+            m.put("buckets", buckets);
+            byEndpoint.put(endpoint, m);
+        });
+        Map<String, Long> rejections = new TreeMap<>();
+        rejected.forEach((client, n) -> rejections.put(client, n.sum()));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("endpoints", byEndpoint);
+        out.put("bulkheadRejections", rejections);
+        return out;
+    }
+
+    private static Long percentile(long[] counts, double q) {
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return null;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return i < BOUNDS_MS.length ? BOUNDS_MS[i] : Long.MAX_VALUE;
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -1,13 +1,48 @@
 package swd.billiardshop.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Outbound HTTP. All RestTemplates share one JDK HttpClient, which keeps a keep-alive connection
+ * pool per host and uses HTTP/2 where the server offers it. Each template has its own read timeout
+ * and bulkhead so a slow gateway cannot take every request thread with it.
+ */
 @Configuration
 public class RestTemplateConfig {
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public HttpClient outboundHttpClient(@Value("${http-client.connect-timeout-ms:2000}") long connectTimeoutMillis) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * GHN client, injected by type into GHNClientService. A gateway that needs its own read timeout
+     * and bulkhead gets another template from build(), e.g. once MoMo or VNPay are called from here.
+     */
+    @Bean
+    public RestTemplate restTemplate(HttpClient outboundHttpClient, OutboundHttpMetrics metrics,
+                                     @Value("${http-client.ghn.read-timeout-ms:5000}") long readTimeoutMillis,
+                                     @Value("${http-client.ghn.max-concurrent:20}") int maxConcurrent,
+                                     @Value("${http-client.ghn.acquire-timeout-ms:200}") long acquireTimeoutMillis) {
+        return build("ghn", outboundHttpClient, metrics, readTimeoutMillis, maxConcurrent, acquireTimeoutMillis);
+    }
+
+    private static RestTemplate build(String client, HttpClient httpClient, OutboundHttpMetrics metrics,
+                                      long readTimeoutMillis, int maxConcurrent, long acquireTimeoutMillis) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMillis));
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add(new OutboundHttpInterceptor(client, maxConcurrent, acquireTimeoutMillis, metrics));
+        return restTemplate;
     }
 }
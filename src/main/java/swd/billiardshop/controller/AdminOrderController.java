@@ -0,0 +1,33 @@
+package swd.billiardshop.controller;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import swd.billiardshop.dto.response.ApiResponse;
+import swd.billiardshop.service.OrderService;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/admin/orders")
+@CrossOrigin(origins = "*")
+public class AdminOrderController {
+    private final OrderService orderService;
+
+    public AdminOrderController(OrderService orderService) {
+        this.orderService = orderService;
+    }
+
+    // All orders, newest first, filtered by any combination of user, status, payment status and creation date
+    @GetMapping
+    public ResponseEntity<ApiResponse<?>> listOrders(
+            @RequestParam(value = "userId", required = false) Integer userId,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "paymentStatus", required = false) String paymentStatus,
+            @RequestParam(value = "createdFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(value = "createdTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(ApiResponse.success(orderService.getAllOrders(userId, status, paymentStatus, createdFrom, createdTo, page, size)));
+    }
+}
@@ -0,0 +1,23 @@
+package swd.billiardshop.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import swd.billiardshop.dto.response.ApiResponse;
+import swd.billiardshop.service.ProductService;
+
+@RestController
+@RequestMapping("/api/admin/products")
+@CrossOrigin(origins = "*")
+public class AdminProductController {
+    private final ProductService productService;
+
+    public AdminProductController(ProductService productService) {
+        this.productService = productService;
+    }
+
+    // Sharded stock for hot products: shards >= 2 spreads stock over that many counters, 0 turns it off
+    @PutMapping("/{id}/stock-shards")
+    public ResponseEntity<ApiResponse<?>> setStockShards(@PathVariable Integer id, @RequestParam int shards) {
+        return ResponseEntity.ok(ApiResponse.success(productService.setStockShards(id, shards)));
+    }
+}
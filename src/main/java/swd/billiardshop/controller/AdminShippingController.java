@@ -0,0 +1,32 @@
+package swd.billiardshop.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import swd.billiardshop.dto.response.ApiResponse;
+import swd.billiardshop.service.ShipmentService;
+import swd.billiardshop.service.ShippingQuoteCache;
+
+@RestController
+@RequestMapping("/api/admin/shipping")
+@CrossOrigin(origins = "*")
+public class AdminShippingController {
+    private final ShippingQuoteCache shippingQuoteCache;
+    private final ShipmentService shipmentService;
+
+    public AdminShippingController(ShippingQuoteCache shippingQuoteCache, ShipmentService shipmentService) {
+        this.shippingQuoteCache = shippingQuoteCache;
+        this.shipmentService = shipmentService;
+    }
+
+    // Hit rate, collapsed loads, evictions and size of the GHN fee quote cache
+    @GetMapping("/quote-cache/stats")
+    public ResponseEntity<ApiResponse<?>> getQuoteCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success(shippingQuoteCache.stats()));
+    }
+
+    // State, failure and slow-call rates of the GHN circuit breaker
+    @GetMapping("/ghn-circuit/stats")
+    public ResponseEntity<ApiResponse<?>> getGhnCircuitStats() {
+        return ResponseEntity.ok(ApiResponse.success(shipmentService.getGhnCircuitStats()));
+    }
+}
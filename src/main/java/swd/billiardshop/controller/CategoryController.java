@@ -3,6 +3,7 @@ package swd.billiardshop.controller;
 import org.springframework.web.bind.annotation.*;
 import swd.billiardshop.dto.response.CategoryResponse;
 import swd.billiardshop.service.CategoryService;
+import swd.billiardshop.service.CategoryTreeCache;
 import swd.billiardshop.service.UserService;
 import java.util.List;
 import swd.billiardshop.dto.request.CategoryCreateRequest;
@@ -10,6 +11,7 @@ import swd.billiardshop.dto.request.CategoryUpdateRequest;
 import swd.billiardshop.dto.response.CategoryTreeResponse;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
@@ -25,8 +27,10 @@ public class CategoryController {
     }
 
     @GetMapping
-    public List<CategoryResponse> getAllCategories() {
-        return categoryService.getAllCategories();
+    public ResponseEntity<List<CategoryResponse>> getAllCategories(WebRequest request) {
+        CategoryTreeCache.Snapshot snapshot = categoryService.getSnapshot();
+        if (request.checkNotModified(snapshot.getETag())) return null;
+        return ResponseEntity.ok().eTag(snapshot.getETag()).body(snapshot.getAll());
     }
     
     @PostMapping(consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
@@ -40,6 +44,16 @@ public class CategoryController {
         return ResponseEntity.ok(created);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<List<CategoryResponse>> createCategories(@RequestBody List<CategoryCreateRequest> dtos) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        swd.billiardshop.entity.User creator = null;
+        if (auth != null && auth.getName() != null) {
+            creator = userService.getUserEntityByUsername(auth.getName());
+        }
+        return ResponseEntity.ok(categoryService.createCategories(dtos, creator));
+    }
+
     @PutMapping(value = "/{id}", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
     public ResponseEntity<CategoryResponse> updateCategory(@PathVariable Integer id, @ModelAttribute CategoryUpdateRequest dto) {
         CategoryResponse updated = categoryService.updateCategory(id, dto);
@@ -53,13 +67,18 @@ public class CategoryController {
 }
 
     @GetMapping("/tree")
-    public List<CategoryTreeResponse> getTree() {
-        return categoryService.getCategoryTree();
+    public ResponseEntity<List<CategoryTreeResponse>> getTree(WebRequest request) {
+        CategoryTreeCache.Snapshot snapshot = categoryService.getSnapshot();
+        if (request.checkNotModified(snapshot.getETag())) return null;
+        return ResponseEntity.ok().eTag(snapshot.getETag()).body(snapshot.getRoots());
     }
 
     @GetMapping("/{id}/breadcrumb")
-    public List<CategoryResponse> breadcrumb(@PathVariable Integer id) {
-        return categoryService.getBreadcrumb(id);
+    public ResponseEntity<List<CategoryResponse>> breadcrumb(@PathVariable Integer id, WebRequest request) {
+        CategoryTreeCache.Snapshot snapshot = categoryService.getSnapshot();
+        List<CategoryResponse> path = categoryService.getBreadcrumb(snapshot, id);
+        if (request.checkNotModified(snapshot.getETag())) return null;
+        return ResponseEntity.ok().eTag(snapshot.getETag()).body(path);
     }
 
 }
@@ -38,9 +38,10 @@ public class OrderController {
     @PostMapping
     public ResponseEntity<ApiResponse<?>> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpServletRequest httpRequest) {
         Integer userId = getCurrentUserId(httpRequest);
-        return ResponseEntity.ok(ApiResponse.success(orderService.createOrder(userId, request)));
+        return ResponseEntity.ok(ApiResponse.success(orderService.createOrder(userId, request, idempotencyKey)));
     }
 
     // Confirm (place) the order and optionally trigger payment/shipment
@@ -74,6 +75,17 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(orderService.getOrdersByStatus(userId, status)));
     }
 
+    // List orders for the authenticated user with keyset pagination (pass nextCursor back as cursor)
+    @GetMapping("/cursor")
+    public ResponseEntity<ApiResponse<?>> listOrdersByCursor(
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            HttpServletRequest httpRequest) {
+        Integer userId = getCurrentUserId(httpRequest);
+        return ResponseEntity.ok(ApiResponse.success(orderService.getOrdersByUserIdCursor(userId, status, cursor, size)));
+    }
+
     // Cancel order
     @PutMapping("/{orderId}/cancel")
     public ResponseEntity<ApiResponse<?>> cancelOrder(
@@ -0,0 +1,23 @@
+package swd.billiardshop.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import swd.billiardshop.configuration.OutboundHttpMetrics;
+import swd.billiardshop.dto.response.ApiResponse;
+
+@RestController
+@RequestMapping("/api/admin/http-clients")
+@CrossOrigin(origins = "*")
+public class OutboundHttpController {
+    private final OutboundHttpMetrics outboundHttpMetrics;
+
+    public OutboundHttpController(OutboundHttpMetrics outboundHttpMetrics) {
+        this.outboundHttpMetrics = outboundHttpMetrics;
+    }
+
+    // Latency histograms per outbound endpoint and bulkhead rejections per client
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<?>> getStats() {
+        return ResponseEntity.ok(ApiResponse.success(outboundHttpMetrics.stats()));
+    }
+}
@@ -1,6 +1,7 @@
 package swd.billiardshop.controller;
 
 import org.springframework.web.bind.annotation.*;
+import swd.billiardshop.service.ProductCatalogCache;
 import swd.billiardshop.service.ProductService;
 import swd.billiardshop.service.UserService;
 import swd.billiardshop.dto.response.ProductResponse;
@@ -15,10 +16,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 public class ProductController {
     private final ProductService productService;
     private final UserService userService;
+    private final ProductCatalogCache productCatalogCache;
 
-    public ProductController(ProductService productService, UserService userService) {
+    public ProductController(ProductService productService, UserService userService, ProductCatalogCache productCatalogCache) {
         this.productService = productService;
         this.userService = userService;
+        this.productCatalogCache = productCatalogCache;
     }
 
     @GetMapping
@@ -38,16 +41,53 @@ public class ProductController {
             @RequestParam(required = false) Boolean inStockOnly,
             @RequestParam(required = false) String sortBy,
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) Boolean facets
     ) {
+        if (Boolean.TRUE.equals(facets)) {
+            return productService.searchProductsWithFacets(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly, sortBy, page, size);
+        }
         return productService.searchProducts(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly, sortBy, page, size);
     }
 
+    @GetMapping("/search/cursor")
+    public Object searchProductsByCursor(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) java.math.BigDecimal minPrice,
+            @RequestParam(required = false) java.math.BigDecimal maxPrice,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String material,
+            @RequestParam(required = false) Integer minRating,
+            @RequestParam(required = false) Boolean inStockOnly,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
+    ) {
+        return productService.searchProductsByCursor(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly, sortBy, cursor, size);
+    }
+
     @GetMapping("/{id}")
     public ProductResponse getProduct(@PathVariable Integer id) {
         return productService.getProduct(id);
     }
 
+    @GetMapping("/slug/{slug}")
+    public ProductResponse getProductBySlug(@PathVariable String slug) {
+        return productService.getProductBySlug(slug);
+    }
+
+    @GetMapping("/best-sellers")
+    public List<ProductResponse> getBestSellers(@RequestParam(required = false) Integer categoryId,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        return productService.getBestSellers(categoryId, limit);
+    }
+
+    @GetMapping("/cache/stats")
+    public java.util.Map<String, Object> getCatalogCacheStats() {
+        return productCatalogCache.stats();
+    }
+
     @PostMapping
     public ProductResponse createProduct(@jakarta.validation.Valid @RequestBody ProductRequest req) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
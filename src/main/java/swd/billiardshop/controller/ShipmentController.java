@@ -32,4 +32,4 @@ public class ShipmentController {
         }
         return ResponseEntity.notFound().build();
     }
-}
\ No newline at end of file
+}
@@ -97,6 +97,19 @@ public class UserController {
         return ResponseEntity.ok(new ApiResponse<>(200, "Success", result));
     }
 
+    @GetMapping("/admin/users/cursor")
+    public ResponseEntity<ApiResponse<?>> listUsersByCursor(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) swd.billiardshop.enums.Role role,
+            @RequestParam(required = false) swd.billiardshop.enums.Status status,
+            @RequestParam(required = false) java.time.LocalDateTime createdFrom,
+            @RequestParam(required = false) java.time.LocalDateTime createdTo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        var result = userService.listUsersWithFiltersByCursor(q, role, status, createdFrom, createdTo, cursor, size);
+        return ResponseEntity.ok(new ApiResponse<>(200, "Success", result));
+    }
+
     @PostMapping("/admin/users/{id}/ban")
     public ResponseEntity<ApiResponse<Void>> banUser(@PathVariable Integer id, @RequestBody AdminBanRequest req) {
         userService.banUser(id, req.getReason());
@@ -12,7 +12,7 @@ public class ProductRequest {
     @Size(max = 200)
     private String name;
 
-    @NotBlank
+    // optional: generated from the name when blank
     @Size(max = 200)
     @Pattern(regexp = "^[a-z0-9-]+$", message = "Slug must contain only lowercase letters, numbers and hyphens")
     private String slug;
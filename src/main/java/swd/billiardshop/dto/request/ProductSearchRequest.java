@@ -13,7 +13,7 @@ public class ProductSearchRequest {
     private String material;
     private Integer minRating;
     private Boolean inStockOnly;
-    private String sortBy; // price_asc, price_desc, rating, sales, newest
+    private String sortBy; // price_asc, price_desc, rating, sales, views, newest
     private Integer page;
     private Integer size;
 }
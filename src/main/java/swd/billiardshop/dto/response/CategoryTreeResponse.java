@@ -19,6 +19,7 @@ public class CategoryTreeResponse {
     private Integer parentId;
     private Integer sortOrder;
     private Boolean isActive;
+    private Integer depth;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     @Builder.Default
@@ -0,0 +1,20 @@
+package swd.billiardshop.dto.response;
+
+import lombok.Data;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Facet counts for a product search. Each facet is counted with every filter applied
+ * except its own, so a client can show how many results selecting another value would give.
+ */
+@Data
+public class ProductFacetsResponse {
+    private Map<String, Long> brands = new LinkedHashMap<>();
+    private Map<String, Long> materials = new LinkedHashMap<>();
+    // key "min-max" in VND, last band is "min-"
+    private Map<String, Long> priceRanges = new LinkedHashMap<>();
+    // key = rating floor, value = products with averageRating >= floor
+    private Map<Integer, Long> ratings = new LinkedHashMap<>();
+    private Map<Integer, Long> categories = new LinkedHashMap<>();
+}
@@ -1,11 +1,15 @@
 package swd.billiardshop.dto.response;
 
 import lombok.Data;
+import lombok.NoArgsConstructor;
+import swd.billiardshop.enums.ProductStatus;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
+@NoArgsConstructor
 public class ProductResponse {
     private Integer productId;
     private Integer categoryId;
@@ -35,4 +39,43 @@ public class ProductResponse {
     private List<ProductImageResponse> images;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    /**
+     * Constructor projection used by ProductRepositoryCustomImpl; images are attached afterwards.
+     */
+    public ProductResponse(Integer productId, Integer categoryId, String name, String slug, String description,
+                           String shortDescription, String originCountry, Integer warrantyPeriod, String weightRange,
+                           String tipSize, String material, String brand, String sku, BigDecimal price,
+                           BigDecimal comparePrice, Integer stockQuantity, Integer minStockLevel, BigDecimal weight,
+                           String dimensions, ProductStatus status, Boolean isFeatured, BigDecimal averageRating,
+                           Integer reviewCount, Integer viewCount, Integer salesCount,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.productId = productId;
+        this.categoryId = categoryId;
+        this.name = name;
+        this.slug = slug;
+        this.description = description;
+        this.shortDescription = shortDescription;
+        this.originCountry = originCountry;
+        this.warrantyPeriod = warrantyPeriod;
+        this.weightRange = weightRange;
+        this.tipSize = tipSize;
+        this.material = material;
+        this.brand = brand;
+        this.sku = sku;
+        this.price = price;
+        this.comparePrice = comparePrice;
+        this.stockQuantity = stockQuantity;
+        this.minStockLevel = minStockLevel;
+        this.weight = weight;
+        this.dimensions = dimensions;
+        this.status = status == null ? null : status.name();
+        this.isFeatured = isFeatured;
+        this.averageRating = averageRating;
+        this.reviewCount = reviewCount;
+        this.viewCount = viewCount;
+        this.salesCount = salesCount;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
 }
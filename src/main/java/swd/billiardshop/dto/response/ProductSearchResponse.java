@@ -0,0 +1,14 @@
+package swd.billiardshop.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResponse {
+    private Page<ProductResponse> results;
+    private ProductFacetsResponse facets;
+}
@@ -8,5 +8,7 @@ public class PromotionResponse {
     private Integer promotionId;
     private String code;
     private String title;
+    private String type;
     private BigDecimal discountValue;
+    private BigDecimal maxDiscountAmount;
 }
@@ -12,7 +12,7 @@ import swd.billiardshop.enums.PaymentStatus;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", uniqueConstraints = @UniqueConstraint(name = "uq_orders_user_idempotency_key", columnNames = {"user_id", "idempotency_key"}))
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -72,6 +72,10 @@ public class Order {
     @Column(columnDefinition = "TEXT")
     private String adminNotes;
 
+    // client-supplied key that makes retried checkout requests return the same order
+    @Column(length = 64)
+    private String idempotencyKey;
+
     private LocalDateTime confirmedAt;
     private LocalDateTime shippedAt;
     private LocalDateTime deliveredAt;
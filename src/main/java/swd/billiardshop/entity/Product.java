@@ -2,6 +2,7 @@ package swd.billiardshop.entity;
 
 import lombok.*;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import swd.billiardshop.enums.ProductStatus;
@@ -12,6 +13,9 @@ import swd.billiardshop.enums.ProductStatus;
 @AllArgsConstructor
 @Entity
 @Table(name = "products")
+// stock_quantity, view_count and sales_count are changed by guarded JDBC updates; an entity save must
+// only write the columns it changed, or it puts back the values it loaded
+@DynamicUpdate
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,33 @@
+package swd.billiardshop.entity;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.io.Serializable;
+
+/**
+ * One sub-counter of a hot product's stock; read and written with JDBC by StockShards.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "product_stock_shards")
+@IdClass(ProductStockShard.Key.class)
+public class ProductStockShard {
+    @Id
+    private Integer productId;
+
+    @Id
+    private Integer shardNo;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer productId;
+        private Integer shardNo;
+    }
+}
@@ -43,6 +43,8 @@ public class Promotion {
     private Integer usageLimit;
     @Builder.Default
     private Integer usedCount = 0;
+    // uses allowed per user, counted in promotion_usage; null means no per-user cap
+    private Integer perUserLimit;
 
     @Enumerated(EnumType.STRING)
     @Column(length = 20)
@@ -0,0 +1,43 @@
+package swd.billiardshop.entity;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Last GHN fee quoted per destination district, weight band and service type; read and written
+ * with JDBC by ShippingFeeFallback, which prices shipments from it while GHN is unavailable.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "shipping_quote_history")
+@IdClass(ShippingQuoteHistory.Key.class)
+public class ShippingQuoteHistory {
+    @Id
+    private Integer districtId;
+
+    @Id
+    private Integer weightBand;
+
+    @Id
+    private Integer serviceTypeId;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal fee;
+
+    @Column(nullable = false)
+    private LocalDateTime quotedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Integer districtId;
+        private Integer weightBand;
+        private Integer serviceTypeId;
+    }
+}
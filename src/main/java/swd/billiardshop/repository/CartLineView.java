@@ -0,0 +1,24 @@
+package swd.billiardshop.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One row per cart item with the product columns CartItemResponse needs.
+ * An empty cart yields a single row whose item columns are null.
+ */
+public interface CartLineView {
+    Integer getCartId();
+    LocalDateTime getCartUpdatedAt();
+    Integer getItemId();
+    Integer getProductId();
+    String getProductName();
+    String getProductSlug();
+    String getProductSku();
+    Integer getAvailableStock();
+    BigDecimal getUnitPrice();
+    Integer getQuantity();
+    BigDecimal getTotalPrice();
+    LocalDateTime getAddedAt();
+    LocalDateTime getUpdatedAt();
+}
@@ -1,11 +1,24 @@
 package swd.billiardshop.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import swd.billiardshop.entity.Cart;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Integer> {
 	Optional<Cart> findByUserUserId(Integer userId);
 	void deleteByUserUserId(Integer userId);
+
+	/**
+	 * The user's cart with its items and their product columns in a single query, newest item first.
+	 */
+	@Query("select c.cartId as cartId, c.updatedAt as cartUpdatedAt, i.itemId as itemId, p.productId as productId, "
+			+ "p.name as productName, p.slug as productSlug, p.sku as productSku, p.stockQuantity as availableStock, "
+			+ "i.unitPrice as unitPrice, i.quantity as quantity, i.totalPrice as totalPrice, i.addedAt as addedAt, i.updatedAt as updatedAt "
+			+ "from Cart c left join CartItem i on i.cart = c left join i.product p "
+			+ "where c.user.userId = :userId order by i.addedAt desc")
+	List<CartLineView> findLinesByUserId(@Param("userId") Integer userId);
 }
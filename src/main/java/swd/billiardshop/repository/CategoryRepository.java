@@ -13,6 +13,12 @@ public interface CategoryRepository extends JpaRepository<Category, Integer> {
 
 	boolean existsByNameAndParent_Name(String name, String parentName);
 
+	/**
+	 * Case-insensitive sibling name check, served by the functional index uq_categories_parent_lower_name.
+	 */
+	@Query(value = "SELECT COUNT(*) FROM categories WHERE COALESCE(parent_id, 0) = COALESCE(:parentId, 0) AND LOWER(name) = LOWER(:name)", nativeQuery = true)
+	long countByParentIdAndNameIgnoreCase(@Param("parentId") Integer parentId, @Param("name") String name);
+
 	@Query("select c from Category c where c.parent.categoryId = :parentId")
 	List<Category> findByParentId(@Param("parentId") Integer parentId);
 
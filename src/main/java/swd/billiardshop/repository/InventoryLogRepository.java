@@ -1,7 +1,23 @@
 package swd.billiardshop.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import swd.billiardshop.entity.InventoryLog;
+import swd.billiardshop.enums.InventoryLogReferenceType;
+import swd.billiardshop.enums.InventoryLogType;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface InventoryLogRepository extends JpaRepository<InventoryLog, Integer> {
+	/**
+	 * Net stock change per product logged against a reference, as [productId, sum(quantityChange)] rows.
+	 */
+	@Query("select l.product.productId, sum(l.quantityChange) from InventoryLog l "
+			+ "where l.referenceType = :referenceType and l.referenceId = :referenceId and l.type in :types "
+			+ "group by l.product.productId")
+	List<Object[]> sumChangeByProduct(@Param("referenceType") InventoryLogReferenceType referenceType,
+									  @Param("referenceId") Integer referenceId,
+									  @Param("types") Collection<InventoryLogType> types);
 }
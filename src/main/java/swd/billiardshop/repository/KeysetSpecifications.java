@@ -0,0 +1,31 @@
+package swd.billiardshop.repository;
+
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class KeysetSpecifications {
+    private KeysetSpecifications() {}
+
+    /**
+     * Rows strictly after the (value, id) of the last row of the previous page, for a sort on
+     * field then idField in the same direction. With a null value only the id decides.
+     * MySQL sorts NULL values first ascending and last descending: ascending, rows with a non-null field
+     * always follow a NULL cursor; descending, rows with a NULL field always follow a non-null cursor.
+     */
+    public static <T, V extends Comparable<? super V>> Specification<T> after(String field, V value, String idField, Integer id, boolean ascending) {
+        return (root, query, cb) -> {
+            if (id == null) return null;
+            Path<Integer> idPath = root.get(idField);
+            var idAfter = ascending ? cb.greaterThan(idPath, id) : cb.lessThan(idPath, id);
+            if (field == null) return idAfter;
+            Path<V> path = root.get(field);
+            if (value == null) {
+                var nullAfter = cb.and(cb.isNull(path), idAfter);
+                return ascending ? cb.or(cb.isNotNull(path), nullAfter) : nullAfter;
+            }
+            var valueAfter = ascending ? cb.greaterThan(path, value) : cb.lessThan(path, value);
+            var sameValue = cb.and(cb.equal(path, value), idAfter);
+            return ascending ? cb.or(valueAfter, sameValue) : cb.or(valueAfter, sameValue, cb.isNull(path));
+        };
+    }
+}
@@ -1,11 +1,20 @@
 package swd.billiardshop.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import swd.billiardshop.entity.OrderItem;
 import swd.billiardshop.entity.Order;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
 	List<OrderItem> findByOrder(Order order);
+
+	@Query("select i.order.orderId as orderId, i.itemId as itemId, i.product.productId as productId, "
+			+ "i.productName as productName, i.productSku as productSku, i.quantity as quantity, "
+			+ "i.unitPrice as unitPrice, i.totalPrice as totalPrice "
+			+ "from OrderItem i where i.order.orderId in :orderIds order by i.itemId")
+	List<OrderItemView> findViewsByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
 }
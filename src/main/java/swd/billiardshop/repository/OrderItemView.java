@@ -0,0 +1,17 @@
+package swd.billiardshop.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Order item columns OrderItemResponse needs, without loading the Product entity.
+ */
+public interface OrderItemView {
+    Integer getOrderId();
+    Integer getItemId();
+    Integer getProductId();
+    String getProductName();
+    String getProductSku();
+    Integer getQuantity();
+    BigDecimal getUnitPrice();
+    BigDecimal getTotalPrice();
+}
@@ -1,15 +1,38 @@
 package swd.billiardshop.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import jakarta.persistence.LockModeType;
 import swd.billiardshop.entity.Order;
 import swd.billiardshop.entity.User;
 
 import java.util.List;
+import java.util.Optional;
 
 
-public interface OrderRepository extends JpaRepository<Order, Integer> {
+public interface OrderRepository extends JpaRepository<Order, Integer>, JpaSpecificationExecutor<Order> {
 	List<Order> findByUser(User user);
 
+	Optional<Order> findByUserUserIdAndIdempotencyKey(Integer userId, String idempotencyKey);
+
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	Optional<Order> findWithLockByOrderId(Integer orderId);
+
+	// filtered listings: fetch user and address in the same select instead of one query per order
+	@Override
+	@EntityGraph(attributePaths = {"user", "address"})
+	Page<Order> findAll(Specification<Order> spec, Pageable pageable);
+
+	@Override
+	@EntityGraph(attributePaths = {"user", "address"})
+	List<Order> findAll(Specification<Order> spec, Sort sort);
+
 
 	boolean existsByAddress_AddressIdAndUser(Integer addressId, User user);
 }
@@ -0,0 +1,33 @@
+package swd.billiardshop.repository;
+
+import org.springframework.data.jpa.domain.Specification;
+import swd.billiardshop.entity.Order;
+import swd.billiardshop.enums.OrderStatus;
+import swd.billiardshop.enums.PaymentStatus;
+
+import java.time.LocalDateTime;
+
+public final class OrderSpecifications {
+    private OrderSpecifications() {}
+
+    public static Specification<Order> forUser(Integer userId) {
+        return (root, query, cb) -> userId == null ? null : cb.equal(root.get("user").get("userId"), userId);
+    }
+
+    public static Specification<Order> hasStatus(OrderStatus status) {
+        return (root, query, cb) -> status == null ? null : cb.equal(root.get("status"), status);
+    }
+
+    public static Specification<Order> hasPaymentStatus(PaymentStatus paymentStatus) {
+        return (root, query, cb) -> paymentStatus == null ? null : cb.equal(root.get("paymentStatus"), paymentStatus);
+    }
+
+    public static Specification<Order> createdBetween(LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> {
+            if (from == null && to == null) return null;
+            if (from != null && to != null) return cb.between(root.get("createdAt"), from, to);
+            if (from != null) return cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+            return cb.lessThanOrEqualTo(root.get("createdAt"), to);
+        };
+    }
+}
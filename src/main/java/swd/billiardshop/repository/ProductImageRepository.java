@@ -1,10 +1,21 @@
 package swd.billiardshop.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import swd.billiardshop.entity.ProductImage;
+import java.util.Collection;
 import java.util.List;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, Integer> {
     List<ProductImage> findByProductProductIdOrderBySortOrderAsc(Integer productId);
+
+    // batch variant used when hydrating a page/list of products with a single IN (...) query;
+    // a projection so the eager ProductImage.product association is not loaded
+    @Query("select i.product.productId as productId, i.imageId as imageId, i.imageUrl as imageUrl, " +
+            "i.altText as altText, i.isPrimary as isPrimary " +
+            "from ProductImage i where i.product.productId in :productIds order by i.sortOrder asc")
+    List<ProductImageView> findViewsByProductIds(@Param("productIds") Collection<Integer> productIds);
+
     Integer countByProductProductId(Integer productId);
 }
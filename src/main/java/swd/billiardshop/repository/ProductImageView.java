@@ -0,0 +1,12 @@
+package swd.billiardshop.repository;
+
+/**
+ * Image columns needed by ProductImageResponse plus the owning product id, without loading the Product.
+ */
+public interface ProductImageView {
+    Integer getProductId();
+    Integer getImageId();
+    String getImageUrl();
+    String getAltText();
+    Boolean getIsPrimary();
+}
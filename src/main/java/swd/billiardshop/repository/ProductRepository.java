@@ -7,10 +7,22 @@ import swd.billiardshop.entity.Product;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
-public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProductRepository extends JpaRepository<Product, Integer>, JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
 	@Query("select count(p) from Product p where p.category.categoryId = :categoryId")
 	Integer countByCategoryId(@Param("categoryId") Integer categoryId);
 
+	Optional<Product> findBySlug(String slug);
+
 	boolean existsBySku(String sku);
 	boolean existsBySlug(String slug);
+
+	/**
+	 * Current stock straight from the database as [productId, stockQuantity] rows, bypassing loaded entities.
+	 */
+	@Query("select p.productId, p.stockQuantity from Product p where p.productId in :ids")
+	List<Object[]> findStockByIds(@Param("ids") Collection<Integer> ids);
 }
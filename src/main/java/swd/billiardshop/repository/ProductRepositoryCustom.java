@@ -0,0 +1,16 @@
+package swd.billiardshop.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import swd.billiardshop.dto.response.ProductResponse;
+import swd.billiardshop.entity.Product;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Select only the scalar columns of ProductResponse (plus the category FK) for products matching spec,
+     * without loading Product entities or their category/createdBy associations. Images are not filled in.
+     */
+    List<ProductResponse> findResponses(Specification<Product> spec, Sort sort, long offset, int limit);
+}
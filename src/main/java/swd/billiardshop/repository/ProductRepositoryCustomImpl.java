@@ -0,0 +1,66 @@
+package swd.billiardshop.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import swd.billiardshop.dto.response.ProductResponse;
+import swd.billiardshop.entity.Product;
+
+import java.util.List;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductResponse> findResponses(Specification<Product> spec, Sort sort, long offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductResponse> query = cb.createQuery(ProductResponse.class);
+        Root<Product> p = query.from(Product.class);
+        query.select(cb.construct(ProductResponse.class,
+                p.get("productId"),
+                // FK column only, no join to categories
+                p.get("category").get("categoryId"),
+                p.get("name"),
+                p.get("slug"),
+                p.get("description"),
+                p.get("shortDescription"),
+                p.get("originCountry"),
+                p.get("warrantyPeriod"),
+                p.get("weightRange"),
+                p.get("tipSize"),
+                p.get("material"),
+                p.get("brand"),
+                p.get("sku"),
+                p.get("price"),
+                p.get("comparePrice"),
+                p.get("stockQuantity"),
+                p.get("minStockLevel"),
+                p.get("weight"),
+                p.get("dimensions"),
+                p.get("status"),
+                p.get("isFeatured"),
+                p.get("averageRating"),
+                p.get("reviewCount"),
+                p.get("viewCount"),
+                p.get("salesCount"),
+                p.get("createdAt"),
+                p.get("updatedAt")));
+        if (spec != null) {
+            Predicate predicate = spec.toPredicate(p, query, cb);
+            if (predicate != null) query.where(predicate);
+        }
+        if (sort != null && sort.isSorted()) query.orderBy(QueryUtils.toOrders(sort, p, cb));
+        TypedQuery<ProductResponse> typed = entityManager.createQuery(query);
+        if (offset > 0) typed.setFirstResult((int) offset);
+        if (limit > 0) typed.setMaxResults(limit);
+        return typed.getResultList();
+    }
+}
@@ -1,7 +1,25 @@
 package swd.billiardshop.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import swd.billiardshop.entity.Promotion;
 
+import java.util.Optional;
+
 public interface PromotionRepository extends JpaRepository<Promotion, Integer> {
+	Optional<Promotion> findByCode(String code);
+
+	/**
+	 * Claim one use if the usage limit allows it, in a single conditional update; returns 0 when used up.
+	 */
+	@Modifying
+	@Query("update Promotion p set p.usedCount = coalesce(p.usedCount, 0) + 1 where p.promotionId = :promotionId "
+			+ "and (p.usageLimit is null or coalesce(p.usedCount, 0) < p.usageLimit)")
+	int claimUse(@Param("promotionId") Integer promotionId);
+
+	@Modifying
+	@Query("update Promotion p set p.usedCount = p.usedCount - 1 where p.promotionId = :promotionId and p.usedCount > 0")
+	int releaseUse(@Param("promotionId") Integer promotionId);
 }
@@ -3,5 +3,10 @@ package swd.billiardshop.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import swd.billiardshop.entity.PromotionUsage;
 
+import java.util.List;
+
 public interface PromotionUsageRepository extends JpaRepository<PromotionUsage, Integer> {
+	List<PromotionUsage> findByOrderOrderId(Integer orderId);
+
+	long countByPromotionPromotionIdAndUserUserId(Integer promotionId, Integer userId);
 }
@@ -3,6 +3,8 @@ package swd.billiardshop.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import swd.billiardshop.entity.Shipment;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,4 +13,5 @@ public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
     // New methods for better performance
     Optional<Shipment> findByOrderOrderId(Integer orderId);
     Optional<Shipment> findByTrackingNumber(String trackingNumber);
+    List<Shipment> findByOrderOrderIdIn(Collection<Integer> orderIds);
 }
\ No newline at end of file
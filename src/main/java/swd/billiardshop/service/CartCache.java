@@ -0,0 +1,72 @@
+package swd.billiardshop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.CartResponse;
+import swd.billiardshop.util.TransactionUtil;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Size-bounded, per-user cache of assembled CartResponse objects.
+ * Entries are treated as immutable: CartService builds a new response for every mutation and
+ * replaces the entry after commit. A product -> users index lets price or stock changes drop
+ * exactly the carts that show that product.
+ */
+@Component
+public class CartCache {
+    private final int maxSize;
+    private final LinkedHashMap<Integer, CartResponse> byUser;
+    private final Map<Integer, Set<Integer>> usersByProduct = new HashMap<>();
+
+    public CartCache(@Value("${cart.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.byUser = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized Optional<CartResponse> get(Integer userId) {
+        return Optional.ofNullable(userId == null ? null : byUser.get(userId));
+    }
+
+    public synchronized void put(CartResponse cart) {
+        if (cart == null || cart.getUserId() == null) return;
+        evict(cart.getUserId());
+        byUser.put(cart.getUserId(), cart);
+        for (CartItemResponse item : cart.getItems()) {
+            usersByProduct.computeIfAbsent(item.getProductId(), k -> new HashSet<>()).add(cart.getUserId());
+        }
+        while (byUser.size() > maxSize) evict(byUser.keySet().iterator().next());
+    }
+
+    public void putAfterCommit(CartResponse cart) {
+        TransactionUtil.afterCommit(() -> put(cart));
+    }
+
+    public synchronized void evict(Integer userId) {
+        CartResponse removed = userId == null ? null : byUser.remove(userId);
+        if (removed == null) return;
+        for (CartItemResponse item : removed.getItems()) {
+            Set<Integer> users = usersByProduct.get(item.getProductId());
+            if (users != null && users.remove(userId) && users.isEmpty()) usersByProduct.remove(item.getProductId());
+        }
+    }
+
+    public void evictAfterCommit(Integer userId) {
+        TransactionUtil.afterCommit(() -> evict(userId));
+    }
+
+    /**
+     * Drop every cached cart containing the product, e.g. after its price or stock changed.
+     */
+    public synchronized void evictProduct(Integer productId) {
+        Set<Integer> users = usersByProduct.remove(productId);
+        if (users == null) return;
+        for (Integer userId : new HashSet<>(users)) evict(userId);
+    }
+}
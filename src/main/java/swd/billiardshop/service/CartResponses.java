@@ -0,0 +1,86 @@
+package swd.billiardshop.service;
+
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.CartResponse;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copy-on-write helpers for CartResponse, shared by CartService and the cart stores.
+ * Cached responses are never modified; every change produces a new response.
+ */
+final class CartResponses {
+    private CartResponses() {
+    }
+
+    static CartResponse of(Integer cartId, Integer userId, LocalDateTime updatedAt, List<CartItemResponse> items) {
+        CartResponse resp = new CartResponse();
+        resp.setCartId(cartId);
+        resp.setUserId(userId);
+        resp.setUpdatedAt(updatedAt);
+        resp.setItems(Collections.unmodifiableList(items));
+        resp.setTotalItems(items.stream().mapToInt(CartItemResponse::getQuantity).sum());
+        resp.setTotalAmount(items.stream().map(CartItemResponse::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add));
+        return resp;
+    }
+
+    static CartResponse withItems(CartResponse base, List<CartItemResponse> items) {
+        return of(base.getCartId(), base.getUserId(), base.getUpdatedAt(), items);
+    }
+
+    /**
+     * Copy of base with item inserted (newest first) or replacing the entry with the same itemId.
+     */
+    static CartResponse withItem(CartResponse base, CartItemResponse item) {
+        List<CartItemResponse> items = new ArrayList<>(base.getItems().size() + 1);
+        boolean replaced = false;
+        for (CartItemResponse r : base.getItems()) {
+            if (r.getItemId().equals(item.getItemId())) {
+                items.add(item);
+                replaced = true;
+            } else {
+                items.add(r);
+            }
+        }
+        if (!replaced) items.add(0, item);
+        return withItems(base, items);
+    }
+
+    static CartResponse withoutItems(CartResponse base, Collection<Integer> itemIds) {
+        List<CartItemResponse> items = new ArrayList<>(base.getItems());
+        items.removeIf(r -> itemIds.contains(r.getItemId()));
+        return withItems(base, items);
+    }
+
+    static CartItemResponse copyItem(CartItemResponse ex) {
+        CartItemResponse copy = new CartItemResponse();
+        copy.setItemId(ex.getItemId());
+        copy.setProductId(ex.getProductId());
+        copy.setProductName(ex.getProductName());
+        copy.setProductSlug(ex.getProductSlug());
+        copy.setProductImage(ex.getProductImage());
+        copy.setProductSku(ex.getProductSku());
+        copy.setUnitPrice(ex.getUnitPrice());
+        copy.setQuantity(ex.getQuantity());
+        copy.setTotalPrice(ex.getTotalPrice());
+        copy.setAvailableStock(ex.getAvailableStock());
+        copy.setAddedAt(ex.getAddedAt());
+        copy.setUpdatedAt(ex.getUpdatedAt());
+        return copy;
+    }
+
+    static CartItemResponse findItem(CartResponse cart, Integer itemId) {
+        for (CartItemResponse r : cart.getItems()) if (r.getItemId().equals(itemId)) return r;
+        return null;
+    }
+
+    static CartItemResponse findProduct(CartResponse cart, Integer productId) {
+        for (CartItemResponse r : cart.getItems()) if (r.getProductId().equals(productId)) return r;
+        return null;
+    }
+}
@@ -1,42 +1,41 @@
 package swd.billiardshop.service;
 
-import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import swd.billiardshop.dto.request.AddToCartRequest;
 import swd.billiardshop.dto.request.UpdateCartItemRequest;
 import swd.billiardshop.dto.response.CartItemResponse;
 import swd.billiardshop.dto.response.CartResponse;
-import swd.billiardshop.entity.Cart;
-import swd.billiardshop.entity.CartItem;
+import swd.billiardshop.dto.response.ProductResponse;
 import swd.billiardshop.entity.Product;
-import swd.billiardshop.entity.User;
 import swd.billiardshop.exception.AppException;
 import swd.billiardshop.exception.ErrorCode;
-import swd.billiardshop.repository.CartItemRepository;
-import swd.billiardshop.repository.CartRepository;
 import swd.billiardshop.repository.ProductRepository;
-import swd.billiardshop.repository.UserRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class CartService {
-    private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
 
-    public CartResponse addToCart(Integer userId, AddToCartRequest request) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+    public CartService(CartStore cartStore, ProductRepository productRepository) {
+        this.cartStore = cartStore;
+        this.productRepository = productRepository;
+    }
 
+    public CartResponse addToCart(Integer userId, AddToCartRequest request) {
         Product product = productRepository.findById(request.getProductId())
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
 
@@ -48,125 +47,66 @@ public class CartService {
             throw new AppException(ErrorCode.INSUFFICIENT_STOCK, "Chỉ còn " + product.getStockQuantity() + " sản phẩm trong kho");
         }
 
-        Cart cart = getOrCreateCart(user);
-
-        Optional<CartItem> existing = cartItemRepository.findByCartCartIdAndProductProductId(cart.getCartId(), request.getProductId());
-        if (existing.isPresent()) {
-            CartItem item = existing.get();
-            int newQty = item.getQuantity() + request.getQuantity();
+        CartItemResponse existing = CartResponses.findProduct(cartStore.load(userId), product.getProductId());
+        int newQty = request.getQuantity();
+        if (existing != null) {
+            newQty += existing.getQuantity();
             if (product.getStockQuantity() < newQty) {
                 throw new AppException(ErrorCode.INSUFFICIENT_STOCK, "Tổng số lượng vượt quá hàng tồn kho. Còn lại: " + product.getStockQuantity());
             }
-            item.setQuantity(newQty);
-            item.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(newQty)));
-            item.setUpdatedAt(LocalDateTime.now());
-            cartItemRepository.save(item);
-        } else {
-            CartItem item = CartItem.builder()
-                    .cart(cart)
-                    .product(product)
-                    .quantity(request.getQuantity())
-                    .unitPrice(product.getPrice())
-                    .totalPrice(product.getPrice().multiply(BigDecimal.valueOf(request.getQuantity())))
-                    .addedAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
-            cartItemRepository.save(item);
         }
 
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
-
-        return getCartByUserId(userId);
+        return cartStore.putItem(userId, product, newQty);
     }
 
     public CartResponse updateCartItem(Integer userId, Integer itemId, UpdateCartItemRequest request) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        CartItemResponse item = CartResponses.findItem(cartStore.load(userId), itemId);
+        if (item == null) throw new AppException(ErrorCode.CART_ITEM_NOT_FOUND);
 
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
-
-        Cart cart = cartRepository.findById(item.getCart().getCartId())
-                .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
-
-        if (!userId.equals(cart.getUser().getUserId())) throw new AppException(ErrorCode.FORBIDDEN);
-
-        Product product = productRepository.findById(item.getProduct().getProductId())
+        Product product = productRepository.findById(item.getProductId())
                 .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
 
         if (product.getStockQuantity() < request.getQuantity()) {
             throw new AppException(ErrorCode.INSUFFICIENT_STOCK, "Chỉ còn " + product.getStockQuantity() + " sản phẩm trong kho");
         }
 
-        item.setQuantity(request.getQuantity());
-        item.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(request.getQuantity())));
-        item.setUpdatedAt(LocalDateTime.now());
-        cartItemRepository.save(item);
-
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
-
-        return getCartByUserId(userId);
+        return cartStore.putItem(userId, product, request.getQuantity());
     }
 
     public CartResponse removeCartItem(Integer userId, Integer itemId) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
-
-        Cart cart = cartRepository.findById(item.getCart().getCartId())
-                .orElseThrow(() -> new AppException(ErrorCode.CART_NOT_FOUND));
-
-        if (!userId.equals(cart.getUser().getUserId())) throw new AppException(ErrorCode.FORBIDDEN);
-
-        cartItemRepository.delete(item);
-
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
-
-        return getCartByUserId(userId);
+        if (CartResponses.findItem(cartStore.load(userId), itemId) == null) throw new AppException(ErrorCode.CART_ITEM_NOT_FOUND);
+        return cartStore.removeItems(userId, Set.of(itemId));
     }
 
     public CartResponse getCartByUserId(Integer userId) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-
-        Optional<Cart> cartOpt = cartRepository.findByUserUserId(userId);
-        if (cartOpt.isEmpty()) {
-            CartResponse resp = new CartResponse();
-            resp.setUserId(userId);
-            resp.setItems(List.of());
-            resp.setTotalItems(0);
-            resp.setTotalAmount(BigDecimal.ZERO);
-            return resp;
-        }
-
-        Cart cart = cartOpt.get();
-        List<CartItem> items = cartItemRepository.findByCartCartIdOrderByAddedAtDesc(cart.getCartId());
-        return buildCartResponse(cart, items);
+        return cartStore.load(userId);
     }
 
     public void clearCart(Integer userId) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-
-        Optional<Cart> cartOpt = cartRepository.findByUserUserId(userId);
-        if (cartOpt.isPresent()) {
-            Cart cart = cartOpt.get();
-            cartItemRepository.deleteByCartCartId(cart.getCartId());
-            cart.setUpdatedAt(LocalDateTime.now());
-            cartRepository.save(cart);
-        }
+        cartStore.clear(userId);
     }
 
+    /**
+     * Check every item against current product status, stock and price with a constant number of queries:
+     * one projection read for all products and one bulk price update in the cart store.
+     */
     public CartResponse validateCartForCheckout(Integer userId) {
         CartResponse cr = getCartByUserId(userId);
         if (cr.getItems() == null || cr.getItems().isEmpty()) throw new AppException(ErrorCode.CART_EMPTY);
 
-        for (var item : cr.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new AppException(ErrorCode.PRODUCT_NOT_FOUND));
+        Set<Integer> productIds = cr.getItems().stream().map(CartItemResponse::getProductId).collect(Collectors.toSet());
+        Specification<Product> byIds = (root, query, cb) -> root.get("productId").in(productIds);
+        Map<Integer, ProductResponse> products = productRepository.findResponses(byIds, Sort.unsorted(), 0, 0).stream()
+                .collect(Collectors.toMap(ProductResponse::getProductId, p -> p));
 
-            if (product.getStatus() == null || !product.getStatus().name().equalsIgnoreCase("ACTIVE")) {
+        LocalDateTime now = LocalDateTime.now();
+        List<CartItemResponse> items = new ArrayList<>(cr.getItems().size());
+        Map<Integer, BigDecimal> repriced = new HashMap<>();
+        for (CartItemResponse item : cr.getItems()) {
+            ProductResponse product = products.get(item.getProductId());
+            if (product == null) throw new AppException(ErrorCode.PRODUCT_NOT_FOUND);
+
+            if (product.getStatus() == null || !product.getStatus().equalsIgnoreCase("ACTIVE")) {
                 throw new AppException(ErrorCode.PRODUCT_INACTIVE, "Sản phẩm " + product.getName() + " không còn bán");
             }
 
@@ -174,12 +114,24 @@ public class CartService {
                 throw new AppException(ErrorCode.INSUFFICIENT_STOCK, "Sản phẩm " + product.getName() + " chỉ còn " + product.getStockQuantity() + " trong kho");
             }
 
-            if (!product.getPrice().equals(item.getUnitPrice())) {
-                updateCartItemPrice(userId, item.getItemId(), product.getPrice());
+            CartItemResponse checked = item;
+            boolean priceChanged = product.getPrice().compareTo(item.getUnitPrice()) != 0;
+            if (priceChanged || !Objects.equals(product.getStockQuantity(), item.getAvailableStock())) {
+                checked = CartResponses.copyItem(item);
+                checked.setAvailableStock(product.getStockQuantity());
+            }
+            if (priceChanged) {
+                BigDecimal total = product.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                checked.setUnitPrice(product.getPrice());
+                checked.setTotalPrice(total);
+                checked.setUpdatedAt(now);
+                repriced.put(item.getItemId(), product.getPrice());
             }
+            items.add(checked);
         }
 
-        return getCartByUserId(userId);
+        cartStore.updatePrices(userId, repriced);
+        return CartResponses.withItems(cr, items);
     }
 
     /**
@@ -187,8 +139,6 @@ public class CartService {
      * Throws AppException if any cart item is invalid or not owned by user.
      */
     public CartResponse getCartSelection(Integer userId, java.util.List<swd.billiardshop.dto.request.SelectedCartItem> selected) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-
         if (selected == null || selected.isEmpty()) return getCartByUserId(userId);
 
         CartResponse full = getCartByUserId(userId);
@@ -203,89 +153,30 @@ public class CartService {
             if (qty <= 0) qty = 1;
             if (qty > ex.getQuantity()) qty = ex.getQuantity(); // clamp
 
-            CartItemResponse copy = new CartItemResponse();
-            copy.setItemId(ex.getItemId());
-            copy.setProductId(ex.getProductId());
-            copy.setProductName(ex.getProductName());
-            copy.setProductSlug(ex.getProductSlug());
-            copy.setProductImage(ex.getProductImage());
-            copy.setProductSku(ex.getProductSku());
-            copy.setUnitPrice(ex.getUnitPrice());
+            CartItemResponse copy = CartResponses.copyItem(ex);
             copy.setQuantity(qty);
             copy.setTotalPrice(ex.getUnitPrice().multiply(new BigDecimal(qty)));
-            copy.setAvailableStock(ex.getAvailableStock());
             resultItems.add(copy);
         }
 
-        CartResponse resp = new CartResponse();
-        resp.setUserId(userId);
-        resp.setItems(resultItems);
-        resp.setTotalItems(resultItems.stream().mapToInt(CartItemResponse::getQuantity).sum());
-        resp.setTotalAmount(resultItems.stream().map(CartItemResponse::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add));
-        return resp;
+        return CartResponses.of(null, userId, null, resultItems);
     }
 
     /**
-     * Remove the specified cart item ids from the user's cart (ownership checked).
+     * Remove the specified cart item ids from the user's cart; ids of other users' items are ignored.
      */
     public void removeItemsFromCart(Integer userId, java.util.List<Integer> itemIds) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-        if (itemIds == null || itemIds.isEmpty()) return;
-        for (Integer id : itemIds) {
-            CartItem it = cartItemRepository.findById(id).orElse(null);
-            if (it == null) continue;
-            if (it.getCart() == null || it.getCart().getUser() == null || !userId.equals(it.getCart().getUser().getUserId())) continue;
-            cartItemRepository.delete(it);
+        if (itemIds == null || itemIds.isEmpty()) {
+            cartStore.load(userId);
+            return;
         }
-        Optional<Cart> cOpt = cartRepository.findByUserUserId(userId);
-        if (cOpt.isPresent()) { Cart c = cOpt.get(); c.setUpdatedAt(LocalDateTime.now()); cartRepository.save(c); }
-    }
-
-    // Helpers
-    private Cart getOrCreateCart(User user) {
-        return cartRepository.findByUserUserId(user.getUserId()).orElseGet(() -> {
-            Cart c = Cart.builder()
-                    .user(user)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .build();
-            return cartRepository.save(c);
-        });
-    }
-
-    private CartResponse buildCartResponse(Cart cart, List<CartItem> items) {
-        List<CartItemResponse> itemResponses = items.stream().map(it -> {
-            CartItemResponse r = new CartItemResponse();
-            r.setItemId(it.getItemId());
-            r.setProductId(it.getProduct().getProductId());
-            r.setProductName(it.getProduct().getName());
-            r.setProductSlug(it.getProduct().getSlug());
-            r.setProductSku(it.getProduct().getSku());
-            r.setUnitPrice(it.getUnitPrice());
-            r.setQuantity(it.getQuantity());
-            r.setTotalPrice(it.getTotalPrice());
-            r.setAvailableStock(it.getProduct().getStockQuantity());
-            r.setAddedAt(it.getAddedAt());
-            r.setUpdatedAt(it.getUpdatedAt());
-            return r;
-        }).collect(Collectors.toList());
-
-        CartResponse resp = new CartResponse();
-        resp.setCartId(cart.getCartId());
-        resp.setUserId(cart.getUser().getUserId());
-        resp.setItems(itemResponses);
-        resp.setTotalItems(items.stream().mapToInt(CartItem::getQuantity).sum());
-        resp.setTotalAmount(items.stream().map(CartItem::getTotalPrice).reduce(BigDecimal.ZERO, BigDecimal::add));
-        resp.setUpdatedAt(cart.getUpdatedAt());
-        return resp;
+        cartStore.removeItems(userId, itemIds);
     }
 
-    private void updateCartItemPrice(Integer userId, Integer itemId, BigDecimal newPrice) {
-        CartItem item = cartItemRepository.findById(itemId)
-                .orElseThrow(() -> new AppException(ErrorCode.CART_ITEM_NOT_FOUND));
-        item.setUnitPrice(newPrice);
-        item.setTotalPrice(newPrice.multiply(BigDecimal.valueOf(item.getQuantity())));
-        item.setUpdatedAt(LocalDateTime.now());
-        cartItemRepository.save(item);
+    /**
+     * Make sure the user's cart is stored in the carts tables, called when an order is placed.
+     */
+    public void persistCart(Integer userId) {
+        cartStore.persist(userId);
     }
 }
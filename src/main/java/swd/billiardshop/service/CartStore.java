@@ -0,0 +1,42 @@
+package swd.billiardshop.service;
+
+import swd.billiardshop.dto.response.CartResponse;
+import swd.billiardshop.entity.Product;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Storage behind CartService. Implementations only store cart lines; stock, status and
+ * ownership rules stay in CartService. Returned CartResponse objects must not be mutated.
+ */
+public interface CartStore {
+    /**
+     * The user's cart, empty when there is none. Throws USER_NOT_FOUND for unknown users.
+     */
+    CartResponse load(Integer userId);
+
+    /**
+     * Insert the line for product, or set the quantity of the existing line (which keeps its unit price).
+     */
+    CartResponse putItem(Integer userId, Product product, int quantity);
+
+    /**
+     * Remove the given lines; ids that are not in the user's cart are ignored.
+     */
+    CartResponse removeItems(Integer userId, Collection<Integer> itemIds);
+
+    void clear(Integer userId);
+
+    /**
+     * Set new unit prices (itemId -> price) and recompute the line totals.
+     */
+    void updatePrices(Integer userId, Map<Integer, BigDecimal> prices);
+
+    /**
+     * Write buffered changes of the user's cart to the carts tables; a no-op for write-through stores.
+     */
+    default void persist(Integer userId) {
+    }
+}
@@ -3,6 +3,7 @@ package swd.billiardshop.service;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import swd.billiardshop.dto.request.CategoryCreateRequest;
 import swd.billiardshop.dto.response.CategoryResponse;
@@ -26,25 +27,54 @@ public class CategoryService {
     private final ProductRepository productRepository;
     private final CategoryMapper categoryMapper;
     private final Cloudinary cloudinary;
+    private final CategoryTreeCache categoryTreeCache;
+    private final SlugAllocator slugAllocator;
 
     public CategoryService(CategoryRepository categoryRepository,
                            ProductRepository productRepository,
                            CategoryMapper categoryMapper,
-                           Cloudinary cloudinary) {
+                           Cloudinary cloudinary,
+                           CategoryTreeCache categoryTreeCache,
+                           SlugAllocator slugAllocator) {
         this.categoryRepository = categoryRepository;
         this.productRepository = productRepository;
         this.categoryMapper = categoryMapper;
         this.cloudinary = cloudinary;
+        this.categoryTreeCache = categoryTreeCache;
+        this.slugAllocator = slugAllocator;
+    }
+
+    /**
+     * The current category snapshot; controllers use its ETag to answer conditional requests.
+     */
+    public CategoryTreeCache.Snapshot getSnapshot() {
+        return categoryTreeCache.get();
     }
 
     public List<CategoryResponse> getAllCategories() {
-        List<Category> all = categoryRepository.findAll();
-        List<CategoryResponse> result = new ArrayList<>();
-        for (Category c : all) result.add(categoryMapper.toDto(c));
-        return result;
+        return categoryTreeCache.get().getAll();
     }
 
     public CategoryResponse createCategory(CategoryCreateRequest dto, swd.billiardshop.entity.User creator) {
+        Category saved = create(dto, creator, slugAllocator.session(SlugAllocator.Scope.CATEGORIES));
+        categoryTreeCache.refreshAfterCommit();
+        return categoryMapper.toDto(saved);
+    }
+
+    /**
+     * Create many categories in one transaction. Slugs come from a shared allocator session, so
+     * the cost grows with the number of categories rather than with duplicate-name probing.
+     */
+    @Transactional
+    public List<CategoryResponse> createCategories(List<CategoryCreateRequest> dtos, swd.billiardshop.entity.User creator) {
+        SlugAllocator.Session slugs = slugAllocator.session(SlugAllocator.Scope.CATEGORIES);
+        List<CategoryResponse> result = new ArrayList<>(dtos.size());
+        for (CategoryCreateRequest dto : dtos) result.add(categoryMapper.toDto(create(dto, creator, slugs)));
+        categoryTreeCache.refreshAfterCommit();
+        return result;
+    }
+
+    private Category create(CategoryCreateRequest dto, swd.billiardshop.entity.User creator, SlugAllocator.Session slugs) {
         if (dto.getName() == null || dto.getName().trim().isEmpty())
             throw new AppException(ErrorCode.INVALID_REQUEST, "Name is required");
 
@@ -58,9 +88,7 @@ public class CategoryService {
             entity.setParent(parent);
         }
 
-        String slug = SlugUtil.toSlug(dto.getName());
-        slug = ensureUniqueSlug(slug);
-        entity.setSlug(slug);
+        entity.setSlug(slugs.next(SlugUtil.toSlug(dto.getName())));
 
         if (dto.getImage() != null && !dto.getImage().isEmpty()) {
             Map<String, String> upload = uploadToCloudinary(dto.getImage());
@@ -72,8 +100,7 @@ public class CategoryService {
     entity.setUpdatedAt(LocalDateTime.now());
     if (creator != null) entity.setCreatedBy(creator);
 
-        Category saved = categoryRepository.save(entity);
-        return categoryMapper.toDto(saved);
+        return categoryRepository.save(entity);
     }
 
     public CategoryResponse updateCategory(Integer id, CategoryUpdateRequest dto) {
@@ -84,7 +111,7 @@ public class CategoryService {
             Integer parentId = dto.getParentId() != null ? dto.getParentId() : (existing.getParent() == null ? null : existing.getParent().getCategoryId());
             validateNameParentUnique(dto.getName(), parentId);
             String newSlug = SlugUtil.toSlug(dto.getName());
-            if (!newSlug.equals(existing.getSlug())) newSlug = ensureUniqueSlug(newSlug);
+            if (!newSlug.equals(existing.getSlug())) newSlug = slugAllocator.allocate(SlugAllocator.Scope.CATEGORIES, newSlug);
             existing.setSlug(newSlug);
             existing.setName(dto.getName());
         }
@@ -121,6 +148,7 @@ public class CategoryService {
 
         existing.setUpdatedAt(LocalDateTime.now());
         Category saved = categoryRepository.save(existing);
+        categoryTreeCache.refreshAfterCommit();
         return categoryMapper.toDto(saved);
     }
 
@@ -130,68 +158,27 @@ public class CategoryService {
         Integer count = productRepository.countByCategoryId(id);
         if (count != null && count > 0) throw new AppException(ErrorCode.INVALID_REQUEST, "Cannot delete category with products");
         categoryRepository.delete(existing);
+        categoryTreeCache.refreshAfterCommit();
     }
 
     public List<CategoryTreeResponse> getCategoryTree() {
-        List<Category> all = categoryRepository.findAll();
-        Map<Integer, CategoryTreeResponse> map = new HashMap<>();
-        for (Category c : all) {
-        CategoryTreeResponse dto = CategoryTreeResponse.builder()
-                    .categoryId(c.getCategoryId())
-                    .name(c.getName())
-                    .slug(c.getSlug())
-                    .description(c.getDescription())
-                    .imageUrl(c.getImageUrl())
-            .imagePublicId(c.getImagePublicId())
-                    .parentId(c.getParent() == null ? null : c.getParent().getCategoryId())
-                    .sortOrder(c.getSortOrder())
-                    .isActive(c.getIsActive())
-                    .createdAt(c.getCreatedAt())
-                    .updatedAt(c.getUpdatedAt())
-                    .build();
-            map.put(c.getCategoryId(), dto);
-        }
-        List<CategoryTreeResponse> roots = new ArrayList<>();
-        for (Category c : all) {
-            CategoryTreeResponse dto = map.get(c.getCategoryId());
-            if (c.getParent() != null) {
-                CategoryTreeResponse parent = map.get(c.getParent().getCategoryId());
-                if (parent != null) parent.getChildren().add(dto);
-            } else {
-                roots.add(dto);
-            }
-        }
-        return roots;
+        return categoryTreeCache.get().getRoots();
     }
 
     public List<CategoryResponse> getBreadcrumb(Integer categoryId) {
-        Category c = categoryRepository.findById(categoryId)
-                .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "Category not found"));
-        LinkedList<CategoryResponse> list = new LinkedList<>();
-        while (c != null) {
-            list.addFirst(categoryMapper.toDto(c));
-            c = c.getParent();
-        }
-        return list;
+        return getBreadcrumb(categoryTreeCache.get(), categoryId);
     }
 
-    private void validateNameParentUnique(String name, Integer parentId) {
-        List<Category> all = categoryRepository.findAll();
-        for (Category c : all) {
-            Integer pid = c.getParent() == null ? null : c.getParent().getCategoryId();
-            if (Objects.equals(pid, parentId) && c.getName().equalsIgnoreCase(name)) {
-                throw new AppException(ErrorCode.INVALID_REQUEST, "Category name must be unique within the same parent");
-            }
-        }
+    public List<CategoryResponse> getBreadcrumb(CategoryTreeCache.Snapshot snapshot, Integer categoryId) {
+        List<CategoryResponse> path = snapshot.getBreadcrumbs().get(categoryId);
+        if (path == null) throw new AppException(ErrorCode.NOT_FOUND, "Category not found");
+        return path;
     }
 
-    private String ensureUniqueSlug(String base) {
-        String slug = base;
-        int i = 1;
-        while (categoryRepository.findBySlug(slug).isPresent()) {
-            slug = base + "-" + i++;
+    private void validateNameParentUnique(String name, Integer parentId) {
+        if (categoryRepository.countByParentIdAndNameIgnoreCase(parentId, name.trim()) > 0) {
+            throw new AppException(ErrorCode.INVALID_REQUEST, "Category name must be unique within the same parent");
         }
-        return slug;
     }
 
     private void checkMaxDepth(Category parent) {
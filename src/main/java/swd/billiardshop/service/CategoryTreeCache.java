@@ -0,0 +1,131 @@
+package swd.billiardshop.service;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.dto.response.CategoryResponse;
+import swd.billiardshop.dto.response.CategoryTreeResponse;
+import swd.billiardshop.entity.Category;
+import swd.billiardshop.mapper.CategoryMapper;
+import swd.billiardshop.repository.CategoryRepository;
+import swd.billiardshop.util.TransactionUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, precomputed snapshot of the category tree.
+ * Built with a single findAll and swapped atomically after category writes commit;
+ * readers just dereference the current snapshot and never take a lock.
+ */
+@Component
+public class CategoryTreeCache {
+    private final CategoryRepository categoryRepository;
+    private final CategoryMapper categoryMapper;
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Snapshot current;
+
+    public CategoryTreeCache(CategoryRepository categoryRepository, CategoryMapper categoryMapper) {
+        this.categoryRepository = categoryRepository;
+        this.categoryMapper = categoryMapper;
+    }
+
+    @Getter
+    public static class Snapshot {
+        private final long version;
+        // weak validator from the content hash, so rebuilds or restarts with unchanged data keep the same tag
+        private final String eTag;
+        private final List<CategoryResponse> all;
+        private final List<CategoryTreeResponse> roots;
+        private final Map<Integer, Integer> depthById;
+        private final Map<Integer, List<CategoryResponse>> breadcrumbs;
+
+        private Snapshot(long version, List<CategoryResponse> all, List<CategoryTreeResponse> roots,
+                         Map<Integer, Integer> depthById, Map<Integer, List<CategoryResponse>> breadcrumbs) {
+            this.version = version;
+            this.eTag = "W/\"" + Integer.toHexString(all.hashCode()) + "\"";
+            this.all = all;
+            this.roots = roots;
+            this.depthById = depthById;
+            this.breadcrumbs = breadcrumbs;
+        }
+    }
+
+    public Snapshot get() {
+        Snapshot s = current;
+        if (s != null) return s;
+        synchronized (this) {
+            if (current == null) current = build();
+            return current;
+        }
+    }
+
+    /**
+     * Rebuild and swap in a fresh snapshot once the current transaction commits.
+     */
+    public void refreshAfterCommit() {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                current = build();
+            }
+        });
+    }
+
+    private Snapshot build() {
+        List<Category> categories = categoryRepository.findAll();
+        List<CategoryResponse> all = new ArrayList<>(categories.size());
+        Map<Integer, CategoryResponse> byId = new HashMap<>();
+        Map<Integer, CategoryTreeResponse> nodes = new HashMap<>();
+        for (Category c : categories) {
+            CategoryResponse r = categoryMapper.toDto(c);
+            all.add(r);
+            byId.put(r.getCategoryId(), r);
+            nodes.put(r.getCategoryId(), CategoryTreeResponse.builder()
+                    .categoryId(r.getCategoryId())
+                    .name(r.getName())
+                    .slug(r.getSlug())
+                    .description(r.getDescription())
+                    .imageUrl(r.getImageUrl())
+                    .imagePublicId(r.getImagePublicId())
+                    .parentId(r.getParentId())
+                    .sortOrder(r.getSortOrder())
+                    .isActive(r.getIsActive())
+                    .createdAt(r.getCreatedAt())
+                    .updatedAt(r.getUpdatedAt())
+                    .build());
+        }
+
+        List<CategoryTreeResponse> roots = new ArrayList<>();
+        for (CategoryResponse r : all) {
+            CategoryTreeResponse node = nodes.get(r.getCategoryId());
+            CategoryTreeResponse parent = r.getParentId() == null ? null : nodes.get(r.getParentId());
+            if (parent != null) parent.getChildren().add(node); else if (r.getParentId() == null) roots.add(node);
+        }
+
+        Map<Integer, Integer> depthById = new HashMap<>();
+        Map<Integer, List<CategoryResponse>> breadcrumbs = new HashMap<>();
+        for (CategoryResponse r : all) {
+            LinkedList<CategoryResponse> path = new LinkedList<>();
+            // bounded by the number of categories so a corrupt parent cycle cannot loop forever
+            for (CategoryResponse c = r; c != null && path.size() <= all.size(); c = c.getParentId() == null ? null : byId.get(c.getParentId())) {
+                path.addFirst(c);
+            }
+            depthById.put(r.getCategoryId(), path.size());
+            breadcrumbs.put(r.getCategoryId(), Collections.unmodifiableList(new ArrayList<>(path)));
+        }
+        for (CategoryTreeResponse node : nodes.values()) {
+            node.setDepth(depthById.get(node.getCategoryId()));
+            node.setChildren(Collections.unmodifiableList(node.getChildren()));
+        }
+
+        return new Snapshot(versions.incrementAndGet(),
+                Collections.unmodifiableList(all),
+                Collections.unmodifiableList(roots),
+                Collections.unmodifiableMap(depthById),
+                Collections.unmodifiableMap(breadcrumbs));
+    }
+}
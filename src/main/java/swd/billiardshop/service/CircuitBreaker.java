@@ -0,0 +1,185 @@
+package swd.billiardshop.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Count-based circuit breaker over a rolling time window. The window is kept as a ring of
+ * fixed-width buckets. The breaker opens once the window has at least minCalls calls and either
+ * the failure rate or the slow-call rate reaches its threshold. After openMillis it lets up to
+ * halfOpenCalls probes through: it closes again if they all succeed quickly, and reopens on the
+ * first failed or slow probe. Callers report every admitted call with the permit tryAcquire returned;
+ * a result is only counted in the state and period it was admitted in, so a call admitted while closed
+ * that finishes after the breaker opened or went half-open neither skews the window nor counts as a probe.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Admission ticket: the state a call was let through in and the period (generation) of that state.
+     */
+    public record Permit(State state, long generation) {
+    }
+
+    /**
+     * Thrown instead of making a call while the breaker is open; without a stack trace, as it is expected and frequent.
+     */
+    public static class OpenException extends RuntimeException {
+        public OpenException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private final String name;
+    private final long bucketMillis;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final double slowRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int halfOpenCalls;
+
+    private final long[] bucketStart;
+    private final int[] calls;
+    private final int[] failures;
+    private final int[] slow;
+
+    private State state = State.CLOSED;
+    // bumped on every state change
+    private long generation;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long rejected;
+    private long timesOpened;
+
+    public CircuitBreaker(String name, long windowMillis, int buckets, int minCalls, double failureRateThreshold,
+                          double slowRateThreshold, long slowCallMillis, long openMillis, int halfOpenCalls) {
+        this.name = name;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.minCalls = minCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowRateThreshold = slowRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenCalls = halfOpenCalls;
+        this.bucketStart = new long[buckets];
+        this.calls = new int[buckets];
+        this.failures = new int[buckets];
+        this.slow = new int[buckets];
+    }
+
+    /**
+     * A permit for a call that may go ahead now, or null while open or when half-open and all probes are taken.
+     */
+    public synchronized Permit tryAcquire() {
+        long now = System.currentTimeMillis();
+        if (state == State.OPEN) {
+            if (now - openedAt < openMillis) {
+                rejected++;
+                return null;
+            }
+            state = State.HALF_OPEN;
+            generation++;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenCalls) {
+                rejected++;
+                return null;
+            }
+            probesInFlight++;
+        }
+        return new Permit(state, generation);
+    }
+
+    public synchronized void onResult(Permit permit, long elapsedMillis, boolean success) {
+        // admitted before the last state change: its outcome belongs to a period that is over
+        if (permit.generation() != generation) return;
+        long now = System.currentTimeMillis();
+        boolean isSlow = elapsedMillis >= slowCallMillis;
+        switch (state) {
+            case OPEN -> {
+            }
+            case HALF_OPEN -> {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (!success || isSlow) {
+                    open(now);
+                } else if (++probeSuccesses >= halfOpenCalls) {
+                    state = State.CLOSED;
+                    generation++;
+                    clearWindow();
+                }
+            }
+            case CLOSED -> {
+                int i = bucket(now);
+                calls[i]++;
+                if (!success) failures[i]++;
+                if (isSlow) slow[i]++;
+                int total = 0, failed = 0, slowCalls = 0;
+                for (int b = 0; b < calls.length; b++) {
+                    if (bucketStart[b] <= now - bucketMillis * calls.length) continue;
+                    total += calls[b];
+                    failed += failures[b];
+                    slowCalls += slow[b];
+                }
+                if (total >= minCalls
+                        && (failed * 100.0 / total >= failureRateThreshold || slowCalls * 100.0 / total >= slowRateThreshold)) {
+                    open(now);
+                }
+            }
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) return State.HALF_OPEN;
+        return state;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        int total = 0, failed = 0, slowCalls = 0;
+        for (int b = 0; b < calls.length; b++) {
+            if (bucketStart[b] <= now - bucketMillis * calls.length) continue;
+            total += calls[b];
+            failed += failures[b];
+            slowCalls += slow[b];
+        }
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("name", name);
+        m.put("state", state().name());
+        m.put("windowCalls", total);
+        m.put("windowFailures", failed);
+        m.put("windowSlowCalls", slowCalls);
+        m.put("timesOpened", timesOpened);
+        m.put("rejected", rejected);
+        return m;
+    }
+
+    private void open(long now) {
+        state = State.OPEN;
+        generation++;
+        openedAt = now;
+        timesOpened++;
+        clearWindow();
+    }
+
+    private void clearWindow() {
+        for (int b = 0; b < calls.length; b++) {
+            bucketStart[b] = 0;
+            calls[b] = failures[b] = slow[b] = 0;
+        }
+    }
+
+    // the ring slot for now, reset first if it still holds an older bucket
+    private int bucket(long now) {
+        long start = now - now % bucketMillis;
+        int i = (int) ((now / bucketMillis) % calls.length);
+        if (bucketStart[i] != start) {
+            bucketStart[i] = start;
+            calls[i] = failures[i] = slow[i] = 0;
+        }
+        return i;
+    }
+}
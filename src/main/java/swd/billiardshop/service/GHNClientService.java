@@ -4,9 +4,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import swd.billiardshop.configuration.GHNConfig;
 import swd.billiardshop.dto.ghn.GHNBaseResponse;
@@ -31,6 +34,64 @@ public class GHNClientService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Value("${ghn.circuit-breaker.window-ms:30000}")
+    private long breakerWindowMillis;
+
+    @Value("${ghn.circuit-breaker.min-calls:10}")
+    private int breakerMinCalls;
+
+    @Value("${ghn.circuit-breaker.failure-rate-percent:50}")
+    private double breakerFailureRate;
+
+    @Value("${ghn.circuit-breaker.slow-rate-percent:50}")
+    private double breakerSlowRate;
+
+    @Value("${ghn.circuit-breaker.slow-call-ms:2000}")
+    private long breakerSlowCallMillis;
+
+    @Value("${ghn.circuit-breaker.open-ms:30000}")
+    private long breakerOpenMillis;
+
+    @Value("${ghn.circuit-breaker.half-open-calls:3}")
+    private int breakerHalfOpenCalls;
+
+    private CircuitBreaker circuitBreaker;
+
+    @PostConstruct
+    void initCircuitBreaker() {
+        circuitBreaker = new CircuitBreaker("ghn", breakerWindowMillis, 10, breakerMinCalls, breakerFailureRate,
+                breakerSlowRate, breakerSlowCallMillis, breakerOpenMillis, breakerHalfOpenCalls);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.state();
+    }
+
+    public java.util.Map<String, Object> getCircuitStats() {
+        return circuitBreaker.stats();
+    }
+
+    /**
+     * All GHN calls go through the circuit breaker. Errors and 5xx responses count as failures,
+     * and so do calls slower than slow-call-ms. A 4xx response means GHN is up but rejected our input.
+     */
+    private ResponseEntity<String> exchange(String url, HttpMethod method, HttpEntity<String> entity) {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) throw new CircuitBreaker.OpenException("GHN circuit breaker is open, not calling " + url);
+        long start = System.currentTimeMillis();
+        boolean success = false;
+        try {
+            ResponseEntity<String> resp = restTemplate.exchange(url, method, entity, String.class);
+            success = true;
+            return resp;
+        } catch (HttpClientErrorException e) {
+            success = true;
+            throw e;
+        } finally {
+            circuitBreaker.onResult(permit, System.currentTimeMillis() - start, success);
+        }
+    }
+
     private HttpHeaders createHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.set("Token", ghnConfig.getToken());
@@ -43,7 +104,7 @@ public class GHNClientService {
             String url = ghnConfig.getApiUrl() + "/master-data/province";
             HttpHeaders headers = createHeaders();
             HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.GET, entity);
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<java.util.List<GHNProvince>> parsed = objectMapper.readValue(resp.getBody(), new com.fasterxml.jackson.core.type.TypeReference<GHNBaseResponse<java.util.List<GHNProvince>>>(){});
                 if (parsed.getCode() == 200) return parsed.getData();
@@ -61,7 +122,7 @@ public class GHNClientService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             String body = "{\"province_id\": " + provinceId + "}";
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<java.util.List<GHNDistrict>> parsed = objectMapper.readValue(resp.getBody(), new com.fasterxml.jackson.core.type.TypeReference<GHNBaseResponse<java.util.List<GHNDistrict>>>(){});
                 if (parsed.getCode() == 200) return parsed.getData();
@@ -79,7 +140,7 @@ public class GHNClientService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             String body = "{\"district_id\": " + districtId + "}";
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<java.util.List<GHNWard>> parsed = objectMapper.readValue(resp.getBody(), new com.fasterxml.jackson.core.type.TypeReference<GHNBaseResponse<java.util.List<GHNWard>>>(){});
                 if (parsed.getCode() == 200) return parsed.getData();
@@ -97,7 +158,7 @@ public class GHNClientService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             String body = objectMapper.writeValueAsString(request);
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<GHNShippingFeeResponse> gh = objectMapper.readValue(resp.getBody(), new TypeReference<GHNBaseResponse<GHNShippingFeeResponse>>(){});
                 if (gh.getCode() == 200) return gh.getData();
@@ -115,7 +176,7 @@ public class GHNClientService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             String body = objectMapper.writeValueAsString(requestObj);
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<GHNCreateOrderResponse> gh = objectMapper.readValue(resp.getBody(), new TypeReference<GHNBaseResponse<GHNCreateOrderResponse>>(){});
                 if (gh.getCode() == 200) return gh.getData();
@@ -133,7 +194,7 @@ public class GHNClientService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             String body = "{\"order_codes\":[\"" + orderCode + "\"]}";
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
             return resp.getStatusCode() == HttpStatus.OK;
         } catch (Exception e) {
             logger.warn("GHN cancel order failed", e);
@@ -154,7 +215,7 @@ public class GHNClientService {
             String body = "{\"order_code\":\"" + orderCode + "\"}";
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
 
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
 
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<GHNOrderDetailResponse.GHNOrderData> parsed = objectMapper.readValue(
@@ -191,7 +252,7 @@ public class GHNClientService {
             String body = "{\"order_code\":\"" + orderCode + "\"}";
             HttpEntity<String> entity = new HttpEntity<>(body, headers);
 
-            ResponseEntity<String> resp = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
+            ResponseEntity<String> resp = exchange(url, HttpMethod.POST, entity);
 
             if (resp.getStatusCode() == HttpStatus.OK) {
                 GHNBaseResponse<GHNOrderDetailResponse.GHNOrderData> parsed = objectMapper.readValue(
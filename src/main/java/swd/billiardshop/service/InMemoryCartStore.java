@@ -0,0 +1,231 @@
+package swd.billiardshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.CartResponse;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.util.TransactionUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Key-value cart store: carts live in process memory keyed by user id and are written
+ * to the carts tables on a debounce timer or when persist is called at checkout.
+ * Item ids are the cart_items ids, as with JpaCartStore: a new line gets its row when it is
+ * added, and write-backs update rows in place, so ids stay stable across them.
+ * Enabled with cart.store.type=memory; this is the single-node implementation, a shared
+ * key-value backend for several nodes would implement CartStore the same way.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "cart.store.type", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+    private final JpaCartStore jpaCartStore;
+    private final long debounceMillis;
+    private final long idleMillis;
+
+    private final ConcurrentHashMap<Integer, Entry> carts = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        private CartResponse cart;
+        // 0 when the SQL copy is current, otherwise when the first unsaved change happened
+        private long dirtySince;
+        private long lastAccess = System.currentTimeMillis();
+        // set when a clean, idle entry is dropped; holders must look the cart up again
+        private boolean dropped;
+    }
+
+    public InMemoryCartStore(JpaCartStore jpaCartStore,
+                             @Value("${cart.store.debounce-ms:60000}") long debounceMillis,
+                             @Value("${cart.store.idle-ms:1800000}") long idleMillis) {
+        this.jpaCartStore = jpaCartStore;
+        this.debounceMillis = debounceMillis;
+        this.idleMillis = idleMillis;
+    }
+
+    @Override
+    public CartResponse load(Integer userId) {
+        return withEntry(userId, e -> e.cart);
+    }
+
+    @Override
+    public CartResponse putItem(Integer userId, Product product, int quantity) {
+        return withEntry(userId, e -> {
+            LocalDateTime now = LocalDateTime.now();
+            CartItemResponse existing = CartResponses.findProduct(e.cart, product.getProductId());
+            CartItemResponse line = existing == null ? new CartItemResponse() : CartResponses.copyItem(existing);
+            if (existing == null) {
+                line.setItemId(jpaCartStore.lineId(userId, product, quantity, now));
+                line.setProductId(product.getProductId());
+                line.setUnitPrice(product.getPrice());
+                line.setAddedAt(now);
+            }
+            line.setProductName(product.getName());
+            line.setProductSlug(product.getSlug());
+            line.setProductSku(product.getSku());
+            line.setAvailableStock(product.getStockQuantity());
+            line.setQuantity(quantity);
+            line.setTotalPrice(line.getUnitPrice().multiply(BigDecimal.valueOf(quantity)));
+            line.setUpdatedAt(now);
+            return change(e, CartResponses.withItem(e.cart, line));
+        });
+    }
+
+    @Override
+    public CartResponse removeItems(Integer userId, Collection<Integer> itemIds) {
+        CartResponse next = withEntry(userId, e -> CartResponses.withoutItems(e.cart, itemIds));
+        // checkout removes items inside the order transaction; keep them if that rolls back
+        TransactionUtil.afterCommit(() -> withEntry(userId, e -> change(e, CartResponses.withoutItems(e.cart, itemIds))));
+        return next;
+    }
+
+    @Override
+    public void clear(Integer userId) {
+        withEntry(userId, e -> e.cart);
+        TransactionUtil.afterCommit(() -> withEntry(userId, e -> change(e, CartResponses.withItems(e.cart, List.of()))));
+    }
+
+    @Override
+    public void updatePrices(Integer userId, Map<Integer, BigDecimal> prices) {
+        if (prices.isEmpty()) return;
+        withEntry(userId, e -> {
+            List<CartItemResponse> items = new ArrayList<>(e.cart.getItems().size());
+            for (CartItemResponse r : e.cart.getItems()) {
+                BigDecimal price = prices.get(r.getItemId());
+                if (price == null) {
+                    items.add(r);
+                    continue;
+                }
+                CartItemResponse c = CartResponses.copyItem(r);
+                c.setUnitPrice(price);
+                c.setTotalPrice(price.multiply(BigDecimal.valueOf(c.getQuantity())));
+                c.setUpdatedAt(LocalDateTime.now());
+                items.add(c);
+            }
+            return change(e, CartResponses.withItems(e.cart, items));
+        });
+    }
+
+    /**
+     * Write the user's cart to SQL once the current transaction (if any) commits.
+     */
+    @Override
+    public void persist(Integer userId) {
+        TransactionUtil.afterCommit(() -> {
+            Entry e = carts.get(userId);
+            if (e != null) write(userId, e);
+        });
+    }
+
+    /**
+     * Write carts whose oldest unsaved change is older than the debounce window,
+     * and drop clean carts nobody touched for cart.store.idle-ms.
+     */
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:10000}")
+    public void flushDirty() {
+        long now = System.currentTimeMillis();
+        carts.forEach((userId, e) -> {
+            long since;
+            synchronized (e) {
+                since = e.dirtySince;
+                if (since == 0 && e.lastAccess <= now - idleMillis) {
+                    e.dropped = true;
+                    carts.remove(userId, e);
+                    return;
+                }
+            }
+            if (since != 0 && since <= now - debounceMillis) write(userId, e);
+        });
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        carts.forEach(this::write);
+    }
+
+    private <T> T withEntry(Integer userId, Function<Entry, T> action) {
+        while (true) {
+            Entry e = entry(userId);
+            synchronized (e) {
+                if (e.dropped) continue;
+                e.lastAccess = System.currentTimeMillis();
+                return action.apply(e);
+            }
+        }
+    }
+
+    private Entry entry(Integer userId) {
+        Entry e = carts.get(userId);
+        if (e != null) return e;
+        // first touch hydrates from SQL, outside the map so other users' lookups never wait on the query
+        Entry loaded = new Entry();
+        loaded.cart = jpaCartStore.load(userId);
+        Entry raced = carts.putIfAbsent(userId, loaded);
+        return raced == null ? loaded : raced;
+    }
+
+    private CartResponse change(Entry e, CartResponse next) {
+        e.cart = CartResponses.of(e.cart.getCartId(), next.getUserId(), LocalDateTime.now(), next.getItems());
+        if (e.dirtySince == 0) e.dirtySince = System.currentTimeMillis();
+        return e.cart;
+    }
+
+    private void write(Integer userId, Entry e) {
+        CartResponse snapshot;
+        synchronized (e) {
+            if (e.dirtySince == 0) return;
+            snapshot = e.cart;
+            e.dirtySince = 0;
+        }
+        try {
+            CartResponse saved = jpaCartStore.overwrite(userId, snapshot.getItems());
+            synchronized (e) {
+                e.cart = CartResponses.of(saved.getCartId(), userId, e.cart.getUpdatedAt(), reissued(e.cart.getItems(), snapshot.getItems(), saved.getItems()));
+            }
+        } catch (Exception ex) {
+            synchronized (e) {
+                if (e.dirtySince == 0) e.dirtySince = System.currentTimeMillis();
+            }
+            log.warn("Writing cart of user {} to the database failed, will retry", userId, ex);
+        }
+    }
+
+    /**
+     * Current lines with the ids the write-back gave them; only differs from current when a line's row
+     * had to be inserted again, e.g. because the transaction that added it rolled back.
+     */
+    private static List<CartItemResponse> reissued(List<CartItemResponse> current, List<CartItemResponse> sent, List<CartItemResponse> written) {
+        Map<Integer, Integer> ids = new HashMap<>();
+        for (int i = 0; i < sent.size(); i++) {
+            if (!sent.get(i).getItemId().equals(written.get(i).getItemId())) ids.put(sent.get(i).getItemId(), written.get(i).getItemId());
+        }
+        if (ids.isEmpty()) return current;
+        List<CartItemResponse> items = new ArrayList<>(current.size());
+        for (CartItemResponse r : current) {
+            Integer id = ids.get(r.getItemId());
+            if (id == null) {
+                items.add(r);
+                continue;
+            }
+            CartItemResponse c = CartResponses.copyItem(r);
+            c.setItemId(id);
+            items.add(c);
+        }
+        return items;
+    }
+}
@@ -1,13 +1,133 @@
 package swd.billiardshop.service;
 
-import lombok.Builder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import swd.billiardshop.dto.response.CartItemResponse;
 import swd.billiardshop.entity.InventoryLog;
+import swd.billiardshop.enums.InventoryLogReferenceType;
+import swd.billiardshop.enums.InventoryLogType;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+import swd.billiardshop.repository.InventoryLogRepository;
+import swd.billiardshop.repository.ProductRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-@Builder
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 @Service
-public class InventoryLogService {
+@Transactional
+public class InventoryLogService implements InventoryPort {
+    private final InventoryLogRepository inventoryLogRepository;
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final JdbcTemplate jdbcTemplate;
+    private final StockShards stockShards;
+
+    public InventoryLogService(InventoryLogRepository inventoryLogRepository,
+                               ProductRepository productRepository,
+                               ProductService productService,
+                               JdbcTemplate jdbcTemplate,
+                               StockShards stockShards) {
+        this.inventoryLogRepository = inventoryLogRepository;
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stockShards = stockShards;
+    }
+
     public List<InventoryLog> getAllInventoryLogs() {
         return null;
     }
+
+    /**
+     * Decrement stock for the whole order in one JDBC batch of guarded updates, so concurrent orders
+     * cannot oversell, and log each change as a SALE against the order. Rows are updated in product id
+     * order so two orders sharing products lock them in the same order and cannot deadlock.
+     * A product that runs short fails the call and the caller's transaction undoes the other decrements.
+     * Hot products with sharded stock are taken from one of their shards instead (StockShards).
+     */
+    @Override
+    public void reserveStock(Integer orderId, List<CartItemResponse> items) {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (CartItemResponse it : items) quantities.merge(it.getProductId(), it.getQuantity(), Integer::sum);
+        if (quantities.isEmpty()) return;
+
+        Set<Integer> sharded = stockShards.shardedAmong(quantities.keySet());
+        List<Object[]> args = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, qty) -> {
+            if (!sharded.contains(productId) || !stockShards.take(productId, qty)) args.add(new Object[]{qty, productId, qty});
+        });
+        if (!args.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(
+                    "UPDATE products SET stock_quantity = stock_quantity - ? WHERE product_id = ? AND stock_quantity >= ?", args);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 0)
+                    throw new AppException(ErrorCode.INSUFFICIENT_STOCK, "Sản phẩm " + args.get(i)[1] + " không đủ hàng trong kho");
+            }
+        }
+        writeLogs(orderId, quantities, InventoryLogType.SALE, -1, null);
+    }
+
+    /**
+     * Return whatever the order still holds (SALE minus earlier RETURN entries) to stock.
+     */
+    @Override
+    public void releaseReservedStock(Integer orderId) {
+        releaseReservedStock(orderId, null);
+    }
+
+    @Override
+    public void releaseReservedStock(Integer orderId, String notes) {
+        Map<Integer, Integer> held = new TreeMap<>();
+        for (Object[] row : inventoryLogRepository.sumChangeByProduct(InventoryLogReferenceType.ORDER, orderId,
+                List.of(InventoryLogType.SALE, InventoryLogType.RETURN))) {
+            if (row[0] != null) held.put((Integer) row[0], -((Number) row[1]).intValue());
+        }
+        held.values().removeIf(q -> q <= 0);
+        if (held.isEmpty()) return;
+
+        Set<Integer> sharded = stockShards.shardedAmong(held.keySet());
+        List<Object[]> args = new ArrayList<>(held.size());
+        held.forEach((productId, qty) -> {
+            if (!sharded.contains(productId) || !stockShards.put(productId, qty)) args.add(new Object[]{qty, productId});
+        });
+        if (!args.isEmpty()) jdbcTemplate.batchUpdate("UPDATE products SET stock_quantity = stock_quantity + ? WHERE product_id = ?", args);
+        writeLogs(orderId, held, InventoryLogType.RETURN, 1, notes);
+    }
+
+    /**
+     * Copy the shard sums of sharded products into products.stock_quantity, so product reads and
+     * caches show the live total, touching each hot row once per interval instead of once per checkout.
+     */
+    @Scheduled(fixedDelayString = "${inventory.shards.reconcile-interval-ms:2000}")
+    public void reconcileShardedStock() {
+        List<Integer> productIds = stockShards.reconcile();
+        if (!productIds.isEmpty()) productService.refreshProducts(productIds);
+    }
+
+    /**
+     * One batched insert of inventory_logs rows for the stock movements of an order.
+     */
+    private void writeLogs(Integer orderId, Map<Integer, Integer> quantities, InventoryLogType type, int sign, String notes) {
+        Map<Integer, Integer> after = new HashMap<>();
+        for (Object[] row : productRepository.findStockByIds(quantities.keySet())) after.put((Integer) row[0], (Integer) row[1]);
+        after.putAll(stockShards.totals(quantities.keySet()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, qty) -> {
+            int stock = after.getOrDefault(productId, 0);
+            rows.add(new Object[]{productId, type.name(), sign * qty, stock - sign * qty, stock,
+                    InventoryLogReferenceType.ORDER.name(), orderId, notes, now});
+        });
+        jdbcTemplate.batchUpdate("INSERT INTO inventory_logs (product_id, type, quantity_change, quantity_before, quantity_after, "
+                + "reference_type, reference_id, notes, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        productService.refreshProducts(quantities.keySet());
+    }
 }
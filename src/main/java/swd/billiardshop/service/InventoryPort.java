@@ -0,0 +1,25 @@
+package swd.billiardshop.service;
+
+import swd.billiardshop.dto.response.CartItemResponse;
+
+import java.util.List;
+
+/**
+ * Stock operations OrderService depends on; implemented by InventoryLogService.
+ */
+public interface InventoryPort {
+    /**
+     * Take the items out of stock for the order; throws INSUFFICIENT_STOCK if any product runs short.
+     */
+    void reserveStock(Integer orderId, List<CartItemResponse> items);
+
+    /**
+     * Put back what reserveStock took for the order; a no-op when nothing is reserved.
+     */
+    void releaseReservedStock(Integer orderId);
+
+    /**
+     * releaseReservedStock with a note on the movement, e.g. why the reservation ended.
+     */
+    void releaseReservedStock(Integer orderId, String notes);
+}
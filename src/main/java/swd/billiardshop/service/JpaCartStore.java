@@ -0,0 +1,275 @@
+package swd.billiardshop.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.CartResponse;
+import swd.billiardshop.entity.Cart;
+import swd.billiardshop.entity.CartItem;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.entity.User;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+import swd.billiardshop.repository.CartItemRepository;
+import swd.billiardshop.repository.CartLineView;
+import swd.billiardshop.repository.CartRepository;
+import swd.billiardshop.repository.ProductRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Write-through cart store on the carts/cart_items tables, fronted by the per-user CartCache.
+ * Reads assemble the cart with one projection query; writes update the cached response in place.
+ */
+@Component
+@Transactional
+public class JpaCartStore implements CartStore {
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final CartCache cartCache;
+    private final JdbcTemplate jdbcTemplate;
+
+    public JpaCartStore(CartRepository cartRepository,
+                        CartItemRepository cartItemRepository,
+                        ProductRepository productRepository,
+                        UserRepository userRepository,
+                        CartCache cartCache,
+                        JdbcTemplate jdbcTemplate) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.cartCache = cartCache;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public CartResponse load(Integer userId) {
+        return cartCache.get(userId).orElseGet(() -> {
+            CartResponse resp = loadCart(userId);
+            cartCache.putAfterCommit(resp);
+            return resp;
+        });
+    }
+
+    @Override
+    public CartResponse putItem(Integer userId, Product product, int quantity) {
+        Cart cart = getOrCreateCart(userId);
+        LocalDateTime now = LocalDateTime.now();
+
+        CartItem item = cartItemRepository.findByCartCartIdAndProductProductId(cart.getCartId(), product.getProductId())
+                .orElseGet(() -> CartItem.builder()
+                        .cart(cart)
+                        .product(product)
+                        .unitPrice(product.getPrice())
+                        .addedAt(now)
+                        .build());
+        item.setQuantity(quantity);
+        item.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(quantity)));
+        item.setUpdatedAt(now);
+        CartItem saved = cartItemRepository.save(item);
+
+        cart.setUpdatedAt(now);
+        cartRepository.save(cart);
+
+        return publish(cart, CartResponses.withItem(cachedOrLoad(userId), toItemResponse(saved, product)));
+    }
+
+    @Override
+    public CartResponse removeItems(Integer userId, Collection<Integer> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) return load(userId);
+        for (Integer id : itemIds) {
+            CartItem it = cartItemRepository.findById(id).orElse(null);
+            if (it == null) continue;
+            if (it.getCart() == null || it.getCart().getUser() == null || !userId.equals(it.getCart().getUser().getUserId())) continue;
+            cartItemRepository.delete(it);
+        }
+        Optional<Cart> cOpt = cartRepository.findByUserUserId(userId);
+        if (cOpt.isEmpty()) return load(userId);
+        Cart cart = cOpt.get();
+        cart.setUpdatedAt(LocalDateTime.now());
+        cartRepository.save(cart);
+        return publish(cart, CartResponses.withoutItems(cachedOrLoad(userId), itemIds));
+    }
+
+    @Override
+    public void clear(Integer userId) {
+        Optional<Cart> cartOpt = cartRepository.findByUserUserId(userId);
+        if (cartOpt.isPresent()) {
+            Cart cart = cartOpt.get();
+            cartItemRepository.deleteByCartCartId(cart.getCartId());
+            cart.setUpdatedAt(LocalDateTime.now());
+            cartRepository.save(cart);
+        } else {
+            userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        }
+        cartCache.evictAfterCommit(userId);
+    }
+
+    @Override
+    public void updatePrices(Integer userId, Map<Integer, BigDecimal> prices) {
+        if (prices.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> args = new ArrayList<>(prices.size());
+        prices.forEach((itemId, price) -> args.add(new Object[]{price, price, now, itemId}));
+        jdbcTemplate.batchUpdate("UPDATE cart_items SET unit_price = ?, total_price = ? * quantity, updated_at = ? WHERE item_id = ?", args);
+        // later reads in this transaction (e.g. order creation) must not see the old prices
+        cartCache.evict(userId);
+    }
+
+    /**
+     * Id of the user's cart_items row for product, inserting the row when there is none, so write-behind
+     * stores hand out the same item ids as this store.
+     */
+    public Integer lineId(Integer userId, Product product, int quantity, LocalDateTime addedAt) {
+        Cart cart = getOrCreateCart(userId);
+        Integer id = cartItemRepository.findByCartCartIdAndProductProductId(cart.getCartId(), product.getProductId())
+                .orElseGet(() -> cartItemRepository.save(CartItem.builder()
+                        .cart(cart)
+                        .product(product)
+                        .quantity(quantity)
+                        .unitPrice(product.getPrice())
+                        .totalPrice(product.getPrice().multiply(BigDecimal.valueOf(quantity)))
+                        .addedAt(addedAt)
+                        .updatedAt(addedAt)
+                        .build()))
+                .getItemId();
+        cartCache.evictAfterCommit(userId);
+        return id;
+    }
+
+    /**
+     * Replace the user's stored cart lines with the given ones, in its own transaction so it can run
+     * from a scheduler or an after-commit callback. Used by write-behind stores. Rows are matched by
+     * product and updated in place, so item ids survive; the returned lines carry the ids of the rows
+     * they were written to.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public CartResponse overwrite(Integer userId, List<CartItemResponse> lines) {
+        Cart cart = getOrCreateCart(userId);
+        Map<Integer, List<CartItem>> rowsByProduct = cartItemRepository.findByCartCartIdOrderByAddedAtDesc(cart.getCartId()).stream()
+                .collect(Collectors.groupingBy(it -> it.getProduct().getProductId()));
+        List<CartItem> rows = new ArrayList<>(lines.size());
+        List<CartItem> stale = new ArrayList<>();
+        for (CartItemResponse l : lines) {
+            CartItem row = null;
+            // keep the row the line was issued for; a duplicate can appear when a line was inserted concurrently
+            for (CartItem it : rowsByProduct.getOrDefault(l.getProductId(), List.of())) {
+                if (row == null || it.getItemId().equals(l.getItemId())) {
+                    if (row != null) stale.add(row);
+                    row = it;
+                } else {
+                    stale.add(it);
+                }
+            }
+            rowsByProduct.remove(l.getProductId());
+            if (row == null) {
+                row = CartItem.builder()
+                        .cart(cart)
+                        .product(productRepository.getReferenceById(l.getProductId()))
+                        .addedAt(l.getAddedAt())
+                        .build();
+            }
+            row.setQuantity(l.getQuantity());
+            row.setUnitPrice(l.getUnitPrice());
+            row.setTotalPrice(l.getTotalPrice());
+            row.setUpdatedAt(l.getUpdatedAt());
+            rows.add(row);
+        }
+        rowsByProduct.values().forEach(stale::addAll);
+        cartItemRepository.deleteAll(stale);
+        cartItemRepository.saveAll(rows);
+
+        List<CartItemResponse> written = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            CartItemResponse c = CartResponses.copyItem(lines.get(i));
+            c.setItemId(rows.get(i).getItemId());
+            written.add(c);
+        }
+        cart.setUpdatedAt(LocalDateTime.now());
+        cartRepository.save(cart);
+        cartCache.evictAfterCommit(userId);
+        return CartResponses.of(cart.getCartId(), userId, cart.getUpdatedAt(), written);
+    }
+
+    // Helpers
+    private Cart getOrCreateCart(Integer userId) {
+        return cartRepository.findByUserUserId(userId).orElseGet(() -> {
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+            Cart c = Cart.builder()
+                    .user(user)
+                    .createdAt(LocalDateTime.now())
+                    .updatedAt(LocalDateTime.now())
+                    .build();
+            return cartRepository.save(c);
+        });
+    }
+
+    private CartResponse cachedOrLoad(Integer userId) {
+        return cartCache.get(userId).orElseGet(() -> loadCart(userId));
+    }
+
+    private CartResponse loadCart(Integer userId) {
+        List<CartLineView> lines = cartRepository.findLinesByUserId(userId);
+        if (lines.isEmpty()) {
+            userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+            return CartResponses.of(null, userId, null, List.of());
+        }
+        List<CartItemResponse> items = new ArrayList<>(lines.size());
+        for (CartLineView l : lines) {
+            if (l.getItemId() == null) continue;
+            CartItemResponse r = new CartItemResponse();
+            r.setItemId(l.getItemId());
+            r.setProductId(l.getProductId());
+            r.setProductName(l.getProductName());
+            r.setProductSlug(l.getProductSlug());
+            r.setProductSku(l.getProductSku());
+            r.setUnitPrice(l.getUnitPrice());
+            r.setQuantity(l.getQuantity());
+            r.setTotalPrice(l.getTotalPrice());
+            r.setAvailableStock(l.getAvailableStock());
+            r.setAddedAt(l.getAddedAt());
+            r.setUpdatedAt(l.getUpdatedAt());
+            items.add(r);
+        }
+        return CartResponses.of(lines.get(0).getCartId(), userId, lines.get(0).getCartUpdatedAt(), items);
+    }
+
+    private CartItemResponse toItemResponse(CartItem it, Product product) {
+        CartItemResponse r = new CartItemResponse();
+        r.setItemId(it.getItemId());
+        r.setProductId(product.getProductId());
+        r.setProductName(product.getName());
+        r.setProductSlug(product.getSlug());
+        r.setProductSku(product.getSku());
+        r.setUnitPrice(it.getUnitPrice());
+        r.setQuantity(it.getQuantity());
+        r.setTotalPrice(it.getTotalPrice());
+        r.setAvailableStock(product.getStockQuantity());
+        r.setAddedAt(it.getAddedAt());
+        r.setUpdatedAt(it.getUpdatedAt());
+        return r;
+    }
+
+    /**
+     * Stamp the cart header on an updated response and hand it to the cache once the transaction commits.
+     */
+    private CartResponse publish(Cart cart, CartResponse resp) {
+        CartResponse stamped = CartResponses.of(cart.getCartId(), resp.getUserId(), cart.getUpdatedAt(), resp.getItems());
+        cartCache.putAfterCommit(stamped);
+        return stamped;
+    }
+}
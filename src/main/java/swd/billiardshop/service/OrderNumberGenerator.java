@@ -0,0 +1,65 @@
+package swd.billiardshop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order numbers: "ORD" + decimal id + Luhn check digit, where the id packs
+ * milliseconds since 2024-01-01 (41 bits), the node id (10 bits) and a per-millisecond sequence (12 bits).
+ * Numbers are unique across nodes with distinct order.number.node-id values and increase monotonically
+ * per node. Generation is a CAS on one AtomicLong: no lock and no database round-trip.
+ */
+@Component
+public class OrderNumberGenerator {
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    // (milliseconds since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    public OrderNumberGenerator(@Value("${order.number.node-id:0}") long node) {
+        if (node < 0 || node > MAX_NODE) throw new IllegalArgumentException("order.number.node-id must be between 0 and " + MAX_NODE);
+        this.node = node;
+    }
+
+    public String next() {
+        String digits = Long.toString(nextId());
+        return "ORD" + digits + checkDigit(digits);
+    }
+
+    long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        while (true) {
+            long prev = last.get();
+            // when the clock steps back or a millisecond's 4096 sequence values run out,
+            // keep counting past prev; the clock catches up with the borrowed milliseconds later
+            long next = Math.max(now, prev + 1);
+            if (last.compareAndSet(prev, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    private static char checkDigit(String digits) {
+        int sum = 0;
+        boolean dbl = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int d = digits.charAt(i) - '0';
+            if (dbl) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+            dbl = !dbl;
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
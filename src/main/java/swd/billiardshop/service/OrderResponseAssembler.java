@@ -0,0 +1,99 @@
+package swd.billiardshop.service;
+
+import org.springframework.stereotype.Component;
+import swd.billiardshop.dto.response.OrderItemResponse;
+import swd.billiardshop.dto.response.OrderResponse;
+import swd.billiardshop.dto.response.ShipmentResponse;
+import swd.billiardshop.entity.Order;
+import swd.billiardshop.repository.OrderItemRepository;
+import swd.billiardshop.repository.OrderItemView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Builds OrderResponses for any number of orders with two queries: one projection over the items
+ * of all orders (no Product entities are loaded) and one for their shipments.
+ */
+@Component
+public class OrderResponseAssembler {
+    private final OrderItemRepository orderItemRepository;
+    private final ShippingPort shippingService;
+
+    public OrderResponseAssembler(OrderItemRepository orderItemRepository, ShippingPort shippingService) {
+        this.orderItemRepository = orderItemRepository;
+        this.shippingService = shippingService;
+    }
+
+    public OrderResponse toResponse(Order order) {
+        return toResponses(List.of(order)).get(0);
+    }
+
+    public List<OrderResponse> toResponses(List<Order> orders) {
+        if (orders.isEmpty()) return List.of();
+        List<Integer> ids = orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+
+        Map<Integer, List<OrderItemResponse>> itemsByOrder = new HashMap<>();
+        for (OrderItemView v : orderItemRepository.findViewsByOrderIds(ids)) {
+            itemsByOrder.computeIfAbsent(v.getOrderId(), k -> new ArrayList<>()).add(toItemResponse(v));
+        }
+        // attach shipment info from ShipmentService (which is backed by GHN responses)
+        Map<Integer, ShipmentResponse> shipments;
+        try {
+            shipments = shippingService.getShipmentsByOrderIds(ids);
+        } catch (Exception ignored) {
+            shipments = Map.of();
+        }
+
+        List<OrderResponse> out = new ArrayList<>(orders.size());
+        for (Order o : orders) {
+            out.add(toResponse(o, itemsByOrder.getOrDefault(o.getOrderId(), List.of()), shipments.get(o.getOrderId())));
+        }
+        return out;
+    }
+
+    private OrderResponse toResponse(Order order, List<OrderItemResponse> items, ShipmentResponse shipment) {
+        OrderResponse resp = new OrderResponse();
+        resp.setOrderId(order.getOrderId());
+        resp.setOrderNumber(order.getOrderNumber());
+        resp.setUserId(order.getUser() != null ? order.getUser().getUserId() : null);
+        resp.setStatus(order.getStatus() != null ? order.getStatus().name() : null);
+        resp.setPaymentStatus(order.getPaymentStatus() != null ? order.getPaymentStatus().name() : null);
+        resp.setCustomerName(order.getCustomerName());
+        resp.setCustomerEmail(order.getCustomerEmail());
+        resp.setCustomerPhone(order.getCustomerPhone());
+        resp.setShippingAddress(order.getShippingAddress());
+        resp.setSubtotal(order.getSubtotal());
+        resp.setShippingCost(order.getShippingCost());
+        resp.setDiscountAmount(order.getDiscountAmount());
+        resp.setTotalAmount(order.getTotalAmount());
+        resp.setShippingMethod(order.getShippingMethod());
+        resp.setNotes(order.getNotes());
+        resp.setAdminNotes(order.getAdminNotes());
+        resp.setCreatedAt(order.getCreatedAt());
+        resp.setConfirmedAt(order.getConfirmedAt());
+        resp.setShippedAt(order.getShippedAt());
+        resp.setDeliveredAt(order.getDeliveredAt());
+        resp.setCancelledAt(order.getCancelledAt());
+
+        resp.setItems(items);
+        resp.setTotalItems(items.stream().mapToInt(OrderItemResponse::getQuantity).sum());
+        resp.setShipment(shipment);
+        return resp;
+    }
+
+    private OrderItemResponse toItemResponse(OrderItemView v) {
+        OrderItemResponse r = new OrderItemResponse();
+        r.setItemId(v.getItemId());
+        r.setProductId(v.getProductId());
+        r.setProductName(v.getProductName());
+        r.setProductSku(v.getProductSku());
+        r.setQuantity(v.getQuantity());
+        r.setUnitPrice(v.getUnitPrice());
+        r.setTotalPrice(v.getTotalPrice());
+        return r;
+    }
+}
@@ -1,8 +1,18 @@
 package swd.billiardshop.service;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import swd.billiardshop.dto.request.*;
 import swd.billiardshop.dto.response.*;
 import swd.billiardshop.entity.*;
@@ -11,13 +21,26 @@ import swd.billiardshop.exception.ErrorCode;
 import swd.billiardshop.repository.*;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import swd.billiardshop.enums.OrderStatus;
+import swd.billiardshop.enums.PaymentStatus;
+import swd.billiardshop.util.CursorUtil;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 
 
+@Slf4j
 @Service
 @Transactional
 public class OrderService {
@@ -35,10 +58,10 @@ public class OrderService {
     private AddressRepository addressRepository;
 
     @Autowired
-    private ProductService promotionService; // optional - use reflection
+    private PromotionPort promotionService;
 
     @Autowired
-    private ShipmentService shippingService; // optional - use reflection
+    private ShippingPort shippingService;
 
     @Autowired
     private ProductRepository productRepository;
@@ -47,10 +70,40 @@ public class OrderService {
     private UserRepository userRepository;
 
     @Autowired
-    private InventoryLogService inventoryService; // optional - use reflection
+    private InventoryPort inventoryService;
+
+    @Autowired
+    private ProductSalesTracker productSalesTracker;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+
+    @Autowired
+    private OrderResponseAssembler orderResponseAssembler;
+
+    @Value("${inventory.reservation.ttl-minutes:30}")
+    private long reservationTtlMinutes;
 
     public OrderPreviewResponse previewOrder(Integer userId, OrderPreviewRequest request) {
-        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        return quote(userId, request).preview();
+    }
+
+    /**
+     * Everything checkout needs that does not write orders: the priced cart selection, the shipping quote
+     * (a GHN call) and the promotion discount. Kept out of the order transaction so no connection or row
+     * lock is held while GHN answers.
+     */
+    private record Quote(User user, Address address, CartResponse cart, OrderPreviewResponse preview) {
+    }
+
+    private Quote quote(Integer userId, OrderPreviewRequest request) {
+        User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
         CartResponse cart;
         if (request.getSelectedItems() != null && !request.getSelectedItems().isEmpty()) {
             cart = cartService.getCartSelection(userId, request.getSelectedItems());
@@ -64,37 +117,22 @@ public class OrderService {
 
         BigDecimal subtotal = cart.getTotalAmount();
 
-        BigDecimal shippingCost = BigDecimal.ZERO;
-        if (shippingService != null) {
-            // let AppException (e.g. LOCATION_NOT_MAPPED) propagate so client sees mapping issues during preview
-            try {
-                shippingCost = (BigDecimal) shippingService.getClass()
-                        .getMethod("calculateShippingFee", String.class, Address.class, List.class)
-                        .invoke(shippingService, request.getShippingMethod(), address, cart.getItems());
-            } catch (java.lang.reflect.InvocationTargetException ite) {
-                // unwrap and rethrow underlying AppException if present
-                Throwable cause = ite.getCause();
-                if (cause instanceof AppException) throw (AppException) cause;
-                throw new AppException(ErrorCode.GHN_API_ERROR, "Lỗi khi tính phí vận chuyển");
-            } catch (Exception e) {
-                throw new AppException(ErrorCode.GHN_API_ERROR, "Lỗi khi tính phí vận chuyển");
-            }
+        BigDecimal shippingCost;
+        // let AppException (e.g. LOCATION_NOT_MAPPED) propagate so client sees mapping issues during preview
+        try {
+            shippingCost = shippingService.calculateShippingFee(request.getShippingMethod(), address, cart.getItems());
+        } catch (AppException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new AppException(ErrorCode.GHN_API_ERROR, "Lỗi khi tính phí vận chuyển");
         }
 
         BigDecimal discountAmount = BigDecimal.ZERO;
         PromotionResponse appliedPromotion = null;
-        if (request.getPromotionCode() != null && !request.getPromotionCode().trim().isEmpty() && promotionService != null) {
-            try {
-                appliedPromotion = (PromotionResponse) promotionService.getClass()
-                        .getMethod("validatePromotion", String.class, Integer.class, BigDecimal.class, BigDecimal.class)
-                        .invoke(promotionService, request.getPromotionCode(), userId, subtotal, shippingCost);
-                discountAmount = (BigDecimal) promotionService.getClass()
-                        .getMethod("calculateDiscount", PromotionResponse.class, BigDecimal.class, BigDecimal.class)
-                        .invoke(promotionService, appliedPromotion, subtotal, shippingCost);
-            } catch (Exception e) {
-                appliedPromotion = null;
-                discountAmount = BigDecimal.ZERO;
-            }
+        if (request.getPromotionCode() != null && !request.getPromotionCode().trim().isEmpty()) {
+            // invalid codes are reported to the client instead of being dropped silently
+            appliedPromotion = promotionService.validatePromotion(request.getPromotionCode(), userId, subtotal, shippingCost);
+            discountAmount = promotionService.calculateDiscount(appliedPromotion, subtotal, shippingCost);
         }
 
         BigDecimal totalAmount = subtotal.add(shippingCost).subtract(discountAmount);
@@ -108,97 +146,47 @@ public class OrderService {
         resp.setAppliedPromotion(appliedPromotion);
         resp.setDiscountAmount(discountAmount);
         resp.setTotalAmount(totalAmount);
-        if (shippingService != null) {
-            try {
-                Object est = shippingService.getClass().getMethod("getEstimatedDelivery", String.class).invoke(shippingService, request.getShippingMethod());
-                resp.setEstimatedDelivery(est != null ? est.toString() : null);
-            } catch (Exception ignored) {
-                resp.setEstimatedDelivery(null);
-            }
-        } else {
-            resp.setEstimatedDelivery(null);
-        }
+        resp.setEstimatedDelivery(shippingService.getEstimatedDelivery(request.getShippingMethod()));
 
-        return resp;
+        return new Quote(user, address, cart, resp);
     }
 
-    public OrderResponse createOrder(Integer userId, CreateOrderRequest request) {
+    /**
+     * Checkout in three stages: price the cart and quote shipping without a transaction, write the order,
+     * its items, stock, promotion usage and cart changes in one short transaction with batched inserts,
+     * then create the GHN shipment after commit. A repeated idempotencyKey returns the first order.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrderResponse createOrder(Integer userId, CreateOrderRequest request, String idempotencyKey) {
+        String key = idempotencyKey == null || idempotencyKey.isBlank() ? null : idempotencyKey.trim();
+        if (key != null) {
+            if (key.length() > 64) throw new AppException(ErrorCode.INVALID_REQUEST, "Idempotency-Key quá dài");
+            Optional<Order> existing = orderRepository.findByUserUserIdAndIdempotencyKey(userId, key);
+            if (existing.isPresent()) return getOrderById(userId, existing.get().getOrderId());
+        }
+
         OrderPreviewRequest previewRequest = new OrderPreviewRequest();
         previewRequest.setAddressId(request.getAddressId());
         previewRequest.setPromotionCode(request.getPromotionCode());
         previewRequest.setShippingMethod(request.getShippingMethod());
         previewRequest.setSelectedItems(request.getSelectedItems());
-
-        OrderPreviewResponse preview = previewOrder(userId, previewRequest);
-
-        User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-        Address address = addressRepository.findById(request.getAddressId()).orElseThrow(() -> new AppException(ErrorCode.SHIPPING_ADDRESS_INVALID));
-
-        Order order = new Order();
-        order.setOrderNumber(generateOrderNumber());
-        order.setUser(user);
-        order.setStatus(swd.billiardshop.enums.OrderStatus.PENDING);
-        order.setPaymentStatus(swd.billiardshop.enums.PaymentStatus.PENDING);
-        order.setAddress(address); // Lưu address reference để shipment có thể dùng
-
-        order.setCustomerName(user.getFullName());
-        order.setCustomerEmail(user.getEmail());
-        order.setCustomerPhone(user.getPhone());
-
-        order.setShippingAddress(formatAddress(address));
-        order.setShippingMethod(request.getShippingMethod());
-        order.setShippingCost(preview.getShippingCost());
-
-        order.setSubtotal(preview.getSubtotal());
-        order.setDiscountAmount(preview.getDiscountAmount());
-        order.setTotalAmount(preview.getTotalAmount());
-
-        order.setNotes(request.getNotes());
-        order.setCreatedAt(LocalDateTime.now());
-        order.setUpdatedAt(LocalDateTime.now());
-
-        order = orderRepository.save(order);
-
-        // Tạo order items
-        CartResponse selectedCart;
-        if (request.getSelectedItems() != null && !request.getSelectedItems().isEmpty()) {
-            selectedCart = cartService.getCartSelection(userId, request.getSelectedItems());
-        } else {
-            selectedCart = cartService.getCartByUserId(userId);
-        }
-        for (var cartItem : selectedCart.getItems()) {
-            OrderItem oi = OrderItem.builder()
-                    .order(order)
-                    .product(productRepository.findById(cartItem.getProductId()).orElse(null))
-                    .productName(cartItem.getProductName())
-                    .productSku(cartItem.getProductSku())
-                    .quantity(cartItem.getQuantity())
-                    .unitPrice(cartItem.getUnitPrice())
-                    .totalPrice(cartItem.getTotalPrice())
-                    .createdAt(LocalDateTime.now())
-                    .build();
-            orderItemRepository.save(oi);
-        }
-
-        // Reserve inventory
-        if (inventoryService != null) {
-            try {
-                inventoryService.getClass().getMethod("reserveStock", Integer.class, List.class)
-                        .invoke(inventoryService, order.getOrderId(), selectedCart.getItems());
-            } catch (Exception ignored) {}
-        }
-
-        // Apply promotion
-        if (preview.getAppliedPromotion() != null && promotionService != null) {
-            try {
-                promotionService.getClass().getMethod("usePromotion", Integer.class, Integer.class, Integer.class, BigDecimal.class)
-                        .invoke(promotionService, preview.getAppliedPromotion().getPromotionId(), userId, order.getOrderId(), preview.getDiscountAmount());
-            } catch (Exception ignored) {}
+        Quote quote = quote(userId, previewRequest);
+
+        Integer orderId;
+        try {
+            orderId = placeOrderWithRetry(quote, request, key);
+        } catch (DuplicateKeyException e) {
+            // a concurrent retry with the same key committed first
+            if (key == null) throw e;
+            orderId = orderRepository.findByUserUserIdAndIdempotencyKey(userId, key)
+                    .orElseThrow(() -> e).getOrderId();
+            return getOrderById(userId, orderId);
         }
 
         // **TẠO SHIPMENT NGAY SAU KHI TẠO ORDER THÀNH CÔNG**
         // Shipment nên được tạo ngay để có tracking number và chuẩn bị logistics
-        if (shippingService != null && needsShipping(request.getShippingMethod())) {
+        if (needsShipping(request.getShippingMethod())) {
+            Order order = orderRepository.findById(orderId).orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
             try {
                 // Directly create shipment; ShipmentService will persist GHN response when available
                 shippingService.createShipment(order);
@@ -211,16 +199,96 @@ public class OrderService {
             }
         }
 
+        return getOrderById(userId, orderId);
+    }
+
+    private static final String INSERT_ORDER = "INSERT INTO orders (order_number, user_id, status, payment_status, customer_name, customer_email, customer_phone, "
+            + "shipping_address, address_id, shipping_method, shipping_cost, subtotal, discount_amount, total_amount, notes, idempotency_key, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_ORDER_ITEM = "INSERT INTO order_items (order_id, product_id, product_name, product_sku, quantity, unit_price, total_price, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Run placeOrder in a new transaction, retrying when the database aborts it to break a lock
+     * deadlock (e.g. two checkouts taking sharded stock); the aborted attempt was rolled back in full.
+     */
+    private Integer placeOrderWithRetry(Quote quote, CreateOrderRequest request, String key) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> placeOrder(quote, request, key));
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= PLACE_ORDER_ATTEMPTS) throw e;
+                log.debug("Checkout of user {} hit a lock conflict, retrying (attempt {})", quote.user().getUserId(), attempt, e);
+            }
+        }
+    }
+
+    private static final int PLACE_ORDER_ATTEMPTS = 3;
+
+    /**
+     * Write stage of createOrder; runs inside transactionTemplate and returns the new order id.
+     */
+    private Integer placeOrder(Quote quote, CreateOrderRequest request, String key) {
+        User user = quote.user();
+        OrderPreviewResponse preview = quote.preview();
+        List<CartItemResponse> items = quote.cart().getItems();
+        LocalDateTime now = LocalDateTime.now();
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, orderNumberGenerator.next());
+            ps.setInt(2, user.getUserId());
+            ps.setString(3, OrderStatus.PENDING.name());
+            ps.setString(4, PaymentStatus.PENDING.name());
+            ps.setString(5, user.getFullName());
+            ps.setString(6, user.getEmail());
+            ps.setString(7, user.getPhone());
+            ps.setString(8, formatAddress(quote.address()));
+            // address reference lets the shipment read recipient details
+            ps.setInt(9, quote.address().getAddressId());
+            ps.setString(10, request.getShippingMethod());
+            ps.setBigDecimal(11, preview.getShippingCost());
+            ps.setBigDecimal(12, preview.getSubtotal());
+            ps.setBigDecimal(13, preview.getDiscountAmount());
+            ps.setBigDecimal(14, preview.getTotalAmount());
+            ps.setString(15, request.getNotes());
+            ps.setString(16, key);
+            ps.setObject(17, now);
+            ps.setObject(18, now);
+            return ps;
+        }, keys);
+        Integer orderId = keys.getKey().intValue();
+
+        List<Object[]> rows = new ArrayList<>(items.size());
+        Map<Integer, Integer> sold = new HashMap<>();
+        for (CartItemResponse ci : items) {
+            rows.add(new Object[]{orderId, ci.getProductId(), ci.getProductName(), ci.getProductSku(),
+                    ci.getQuantity(), ci.getUnitPrice(), ci.getTotalPrice(), now});
+            sold.merge(ci.getProductId(), ci.getQuantity(), Integer::sum);
+        }
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM, rows);
+        productSalesTracker.record(sold);
+
+        // Reserve inventory; a shortfall rolls the whole order back
+        inventoryService.reserveStock(orderId, items);
+
+        // Apply promotion
+        if (preview.getAppliedPromotion() != null) {
+            promotionService.usePromotion(preview.getAppliedPromotion().getPromotionId(), user.getUserId(), orderId, preview.getDiscountAmount());
+        }
+
         // Clear cart
         if (request.getSelectedItems() != null && !request.getSelectedItems().isEmpty()) {
             java.util.List<Integer> ids = request.getSelectedItems().stream()
                     .map(s -> s.getCartItemId()).collect(java.util.stream.Collectors.toList());
-            cartService.removeItemsFromCart(userId, ids);
+            cartService.removeItemsFromCart(user.getUserId(), ids);
         } else {
-            cartService.clearCart(userId);
+            cartService.clearCart(user.getUserId());
         }
-
-        return getOrderById(userId, order.getOrderId());
+        cartService.persistCart(user.getUserId());
+        return orderId;
     }
 
     // Sửa đổi confirmOrder() - chỉ update GHN order, không tạo shipment mới
@@ -239,7 +307,7 @@ public class OrderService {
         createPaymentRecord(order, request.getPaymentMethod());
 
         // Nếu shipment chưa có (trường hợp tạo order bị lỗi shipment), tạo mới
-        if (shippingService != null && needsShipping(order.getShippingMethod())) {
+        if (needsShipping(order.getShippingMethod())) {
             try {
                 // Check existing shipment via service and create one if missing
                 Object existingShipment = shippingService.getShipmentByOrderId(orderId);
@@ -270,55 +338,102 @@ public class OrderService {
 
     public OrderResponse getOrderById(Integer userId, Integer orderId) {
         Order order = getOrderAndValidateOwnership(userId, orderId);
-        return buildOrderResponse(order);
+        return orderResponseAssembler.toResponse(order);
     }
 
     public java.util.List<OrderResponse> getOrdersByUserId(Integer userId) {
         User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
         java.util.List<Order> orders = orderRepository.findByUser(user);
-        return orders.stream().map(this::buildOrderResponse).collect(Collectors.toList());
+        return orderResponseAssembler.toResponses(orders);
     }
 
     public java.util.List<OrderResponse> getOrdersByStatus(Integer userId, String status) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
-        // status is an enum in Order entity, so filter in-memory for now
-        java.util.List<Order> orders = orderRepository.findByUser(user);
-        return orders.stream().filter(o -> o.getStatus() != null && o.getStatus().name().equalsIgnoreCase(status))
-                .map(this::buildOrderResponse).collect(Collectors.toList());
+        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        Specification<Order> spec = OrderSpecifications.forUser(userId).and(OrderSpecifications.hasStatus(parseOrderStatus(status)));
+        java.util.List<Order> orders = orderRepository.findAll(spec, Sort.by(Sort.Direction.DESC, "createdAt", "orderId"));
+        return orderResponseAssembler.toResponses(orders);
     }
 
-    public java.util.List<OrderResponse> getAllOrders() {
-        java.util.List<Order> orders = orderRepository.findAll();
-        return orders.stream().map(this::buildOrderResponse).collect(Collectors.toList());
+    /**
+     * Keyset-paginated order history for a user (newest first), optionally filtered by status.
+     */
+    public CursorPageResponse<OrderResponse> getOrdersByUserIdCursor(Integer userId, String status, String cursor, int size) {
+        if (size <= 0 || size > 100) throw new AppException(ErrorCode.INVALID_REQUEST, "size must be between 1 and 100");
+        userRepository.findById(userId).orElseThrow(() -> new AppException(ErrorCode.USER_NOT_FOUND));
+        Specification<Order> spec = (root, query, cb) -> cb.equal(root.get("user").get("userId"), userId);
+        if (status != null) {
+            OrderStatus st = parseOrderStatus(status);
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), st));
+        }
+        CursorUtil.Cursor c = CursorUtil.decode(cursor, "orderId");
+        if (c != null) spec = spec.and(KeysetSpecifications.<Order, Integer>after(null, null, "orderId", c.getId(), false));
+        Sort sort = Sort.by(Sort.Direction.DESC, "orderId");
+        List<Order> rows = orderRepository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all());
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
+        String next = hasNext ? CursorUtil.encode("orderId", null, rows.get(rows.size() - 1).getOrderId()) : null;
+        return new CursorPageResponse<>(orderResponseAssembler.toResponses(rows), next, hasNext);
+    }
+
+    /**
+     * Admin listing, newest first. Every filter is optional and applied in the query.
+     */
+    public Page<OrderResponse> getAllOrders(Integer userId, String status, String paymentStatus,
+                                            LocalDateTime createdFrom, LocalDateTime createdTo, int page, int size) {
+        if (page < 0 || size <= 0 || size > 100) throw new AppException(ErrorCode.INVALID_REQUEST, "page must be >= 0 and size between 1 and 100");
+        Specification<Order> spec = OrderSpecifications.forUser(userId)
+                .and(OrderSpecifications.hasStatus(status == null ? null : parseOrderStatus(status)))
+                .and(OrderSpecifications.hasPaymentStatus(paymentStatus == null ? null : parsePaymentStatus(paymentStatus)))
+                .and(OrderSpecifications.createdBetween(createdFrom, createdTo));
+        Page<Order> orders = orderRepository.findAll(spec, PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt", "orderId")));
+        return new PageImpl<>(orderResponseAssembler.toResponses(orders.getContent()), orders.getPageable(), orders.getTotalElements());
     }
 
     public OrderResponse cancelOrder(Integer userId, Integer orderId, String reason) {
-        Order order = getOrderAndValidateOwnership(userId, orderId);
+        // row lock: the reservation sweeper may be cancelling the same order, and cancel() must run once
+        Order order = orderRepository.findWithLockByOrderId(orderId).orElseThrow(() -> new AppException(ErrorCode.ORDER_NOT_FOUND));
+        if (order.getUser() == null || !userId.equals(order.getUser().getUserId())) throw new AppException(ErrorCode.FORBIDDEN);
         if (!canCancelOrder(order.getStatus())) throw new AppException(ErrorCode.ORDER_CANNOT_CANCEL);
 
+        cancel(order, reason, null);
+        return orderResponseAssembler.toResponse(order);
+    }
+
+    /**
+     * Cancel PENDING, unpaid orders older than inventory.reservation.ttl-minutes so the stock they
+     * reserved goes back on sale. Each order is cancelled in its own transaction.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void expireReservations() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(reservationTtlMinutes);
+        Specification<Order> spec = OrderSpecifications.hasStatus(OrderStatus.PENDING)
+                .and(OrderSpecifications.hasPaymentStatus(PaymentStatus.PENDING))
+                .and(OrderSpecifications.createdBetween(null, cutoff));
+        List<Order> expired = orderRepository.findAll(spec, PageRequest.of(0, 100, Sort.by(Sort.Direction.ASC, "createdAt"))).getContent();
+        for (Order candidate : expired) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> orderRepository.findWithLockByOrderId(candidate.getOrderId())
+                        // confirmed or paid since the listing was read
+                        .filter(o -> o.getStatus() == OrderStatus.PENDING && o.getPaymentStatus() == PaymentStatus.PENDING)
+                        .ifPresent(o -> cancel(o, "Tự động hủy: quá hạn giữ hàng", "reservation expired")));
+            } catch (Exception e) {
+                log.warn("Expiring reservation of order {} failed", candidate.getOrderId(), e);
+            }
+        }
+    }
+
+    private void cancel(Order order, String reason, String releaseNote) {
         order.setStatus(OrderStatus.CANCELLED);
         order.setCancelledAt(LocalDateTime.now());
         order.setAdminNotes(reason);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        productSalesTracker.record(ProductSalesTracker.quantities(orderItemRepository.findByOrder(order), -1));
 
-        if (inventoryService != null) {
-            try {
-                inventoryService.getClass().getMethod("releaseReservedStock", Integer.class).invoke(inventoryService, orderId);
-            } catch (Exception ignored) {}
-        }
-        if (shippingService != null) {
-            try {
-                shippingService.getClass().getMethod("cancelShipment", Integer.class).invoke(shippingService, orderId);
-            } catch (Exception ignored) {}
-        }
-        if (promotionService != null) {
-            try {
-                promotionService.getClass().getMethod("refundPromotionUsage", Integer.class).invoke(promotionService, orderId);
-            } catch (Exception ignored) {}
-        }
-
-        return buildOrderResponse(order);
+        inventoryService.releaseReservedStock(order.getOrderId(), releaseNote);
+        shippingService.cancelShipment(order.getOrderId());
+        promotionService.refundPromotionUsage(order.getOrderId());
     }
 
     // helpers
@@ -328,10 +443,20 @@ public class OrderService {
         return order;
     }
 
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String random = String.valueOf((int) (Math.random() * 1000));
-        return "ORD" + timestamp + random;
+    private OrderStatus parseOrderStatus(String status) {
+        try {
+            return OrderStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_ORDER_STATUS);
+        }
+    }
+
+    private PaymentStatus parsePaymentStatus(String paymentStatus) {
+        try {
+            return PaymentStatus.valueOf(paymentStatus.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_REQUEST, "Trạng thái thanh toán không hợp lệ");
+        }
     }
 
     private String formatAddress(Address address) {
@@ -347,55 +472,6 @@ public class OrderService {
         return status == OrderStatus.PENDING || status == OrderStatus.CONFIRMED;
     }
 
-    private OrderResponse buildOrderResponse(Order order) {
-    List<OrderItem> items = orderItemRepository.findByOrder(order);
-        OrderResponse resp = new OrderResponse();
-        resp.setOrderId(order.getOrderId());
-        resp.setOrderNumber(order.getOrderNumber());
-    resp.setUserId(order.getUser() != null ? order.getUser().getUserId() : null);
-    resp.setStatus(order.getStatus() != null ? order.getStatus().name() : null);
-    resp.setPaymentStatus(order.getPaymentStatus() != null ? order.getPaymentStatus().name() : null);
-        resp.setCustomerName(order.getCustomerName());
-        resp.setCustomerEmail(order.getCustomerEmail());
-        resp.setCustomerPhone(order.getCustomerPhone());
-        resp.setShippingAddress(order.getShippingAddress());
-        resp.setSubtotal(order.getSubtotal());
-        resp.setShippingCost(order.getShippingCost());
-        resp.setDiscountAmount(order.getDiscountAmount());
-        resp.setTotalAmount(order.getTotalAmount());
-        resp.setShippingMethod(order.getShippingMethod());
-    resp.setNotes(order.getNotes());
-        resp.setAdminNotes(order.getAdminNotes());
-        resp.setCreatedAt(order.getCreatedAt());
-        resp.setConfirmedAt(order.getConfirmedAt());
-        resp.setShippedAt(order.getShippedAt());
-        resp.setDeliveredAt(order.getDeliveredAt());
-        resp.setCancelledAt(order.getCancelledAt());
-
-        resp.setItems(items.stream().map(this::buildOrderItemResponse).collect(Collectors.toList()));
-        resp.setTotalItems(items.stream().mapToInt(OrderItem::getQuantity).sum());
-        // attach shipment info from ShipmentService (which is backed by GHN responses)
-        if (shippingService != null) {
-            try {
-                swd.billiardshop.dto.response.ShipmentResponse sh = shippingService.getShipmentByOrderId(order.getOrderId());
-                resp.setShipment(sh);
-            } catch (Exception ignored) {}
-        }
-        return resp;
-    }
-
-    private OrderItemResponse buildOrderItemResponse(OrderItem item) {
-        OrderItemResponse r = new OrderItemResponse();
-        r.setItemId(item.getItemId());
-        r.setProductId(item.getProduct() != null ? item.getProduct().getProductId() : null);
-        r.setProductName(item.getProductName());
-        r.setProductSku(item.getProductSku());
-        r.setQuantity(item.getQuantity());
-        r.setUnitPrice(item.getUnitPrice());
-        r.setTotalPrice(item.getTotalPrice());
-        return r;
-    }
-
     private List<OrderItemResponse> buildOrderItemResponses(List<CartItemResponse> cartItems) {
         return cartItems.stream().map(ci -> {
             OrderItemResponse r = new OrderItemResponse();
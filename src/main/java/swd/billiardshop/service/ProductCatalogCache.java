@@ -0,0 +1,219 @@
+package swd.billiardshop.service;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.dto.response.ProductResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process, size-bounded read model of the product catalog.
+ * Entries are ProductResponse objects keyed by product id, with a secondary slug index.
+ * The cache keeps its own copies: entries are copied on the way in and on the way out, so callers
+ * may change what they get and view/sales deltas never touch an object a caller already holds.
+ * Least recently used entries are evicted once maxSize is reached.
+ * Writers update the cache after their transaction commits so readers never see rolled back data.
+ * Every write is numbered; a reader takes stamp() before loading from the database and caches the
+ * result with putLoaded, which refuses it if the product was written or evicted in the meantime.
+ */
+@Component
+public class ProductCatalogCache {
+    private final int maxSize;
+    private final LinkedHashMap<Integer, ProductResponse> byId;
+    private final Map<String, Integer> idBySlug = new HashMap<>();
+    // true while the cache holds every product, so full listings can be served without JPA
+    private boolean complete = false;
+    // sequence number of the last write (put, evict or delta) per product, for putLoaded
+    private final Map<Integer, Long> lastWrite = new HashMap<>();
+    private long writeSeq;
+    // lastWrite is cleared when it grows past maxSize; products not in it count as written at writeFloor
+    private long writeFloor;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProductCatalogCache(@Value("${catalog.cache.max-size:5000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.byId = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized Optional<ProductResponse> get(Integer productId) {
+        ProductResponse r = productId == null ? null : byId.get(productId);
+        record(r != null);
+        return Optional.ofNullable(r).map(ProductCatalogCache::copy);
+    }
+
+    public synchronized Optional<ProductResponse> getBySlug(String slug) {
+        Integer id = slug == null ? null : idBySlug.get(slug);
+        ProductResponse r = id == null ? null : byId.get(id);
+        record(r != null);
+        return Optional.ofNullable(r).map(ProductCatalogCache::copy);
+    }
+
+    /**
+     * All cached products, present only when the cache is known to hold the whole catalog.
+     */
+    public synchronized Optional<List<ProductResponse>> getAll() {
+        record(complete);
+        if (!complete) return Optional.empty();
+        List<ProductResponse> all = new ArrayList<>(byId.size());
+        for (ProductResponse r : byId.values()) all.add(copy(r));
+        all.sort((a, b) -> Integer.compare(a.getProductId(), b.getProductId()));
+        return Optional.of(all);
+    }
+
+    /**
+     * Current write sequence number; take it before reading a product from the database.
+     */
+    public synchronized long stamp() {
+        return writeSeq;
+    }
+
+    /**
+     * Cache a product loaded from the database, unless it was written or evicted after stamp was taken,
+     * in which case the loaded copy may be older than what the writer saw. Returns whether it was cached.
+     */
+    public synchronized boolean putLoaded(ProductResponse r, long stamp) {
+        if (r == null || r.getProductId() == null || writtenAfter(r.getProductId(), stamp)) return false;
+        store(r);
+        return true;
+    }
+
+    /**
+     * Cache a product as written by a committed change; it replaces any entry.
+     */
+    public synchronized void put(ProductResponse r) {
+        if (r == null || r.getProductId() == null) return;
+        markWritten(r.getProductId());
+        store(r);
+    }
+
+    private void store(ProductResponse r) {
+        r = copy(r);
+        ProductResponse previous = byId.put(r.getProductId(), r);
+        if (previous != null && previous.getSlug() != null && !previous.getSlug().equals(r.getSlug())) {
+            idBySlug.remove(previous.getSlug());
+        }
+        if (r.getSlug() != null) idBySlug.put(r.getSlug(), r.getProductId());
+        evictOverflow();
+    }
+
+    /**
+     * Replace the cache content with a full catalog load read after stamp was taken. Entries written
+     * since then are kept instead of their loaded copies; products evicted since then are left out,
+     * and the cache is then not marked complete.
+     */
+    public synchronized void loadAll(List<ProductResponse> all, long stamp) {
+        Map<Integer, ProductResponse> newer = new HashMap<>();
+        for (ProductResponse r : byId.values()) {
+            if (writtenAfter(r.getProductId(), stamp)) newer.put(r.getProductId(), r);
+        }
+        byId.clear();
+        idBySlug.clear();
+        complete = true;
+        for (ProductResponse r : all) {
+            if (!writtenAfter(r.getProductId(), stamp)) store(r);
+            else if (!newer.containsKey(r.getProductId())) complete = false;
+        }
+        newer.values().forEach(this::store);
+    }
+
+    /**
+     * Add flushed view deltas to the cached entries, absent products are simply skipped.
+     */
+    public synchronized void addViews(Map<Integer, Long> deltas) {
+        deltas.forEach((id, delta) -> {
+            markWritten(id);
+            ProductResponse r = byId.get(id);
+            if (r != null) r.setViewCount((int) ((r.getViewCount() == null ? 0 : r.getViewCount()) + delta));
+        });
+    }
+
+    /**
+     * Add flushed sales deltas to the cached entries, never going below zero.
+     */
+    public synchronized void addSales(Map<Integer, Long> deltas) {
+        deltas.forEach((id, delta) -> {
+            markWritten(id);
+            ProductResponse r = byId.get(id);
+            if (r != null) r.setSalesCount((int) Math.max(0, (r.getSalesCount() == null ? 0 : r.getSalesCount()) + delta));
+        });
+    }
+
+    public synchronized void evict(Integer productId) {
+        if (productId != null) markWritten(productId);
+        ProductResponse removed = productId == null ? null : byId.remove(productId);
+        if (removed != null && removed.getSlug() != null) idBySlug.remove(removed.getSlug());
+    }
+
+    /**
+     * Evict an entry that could not be reloaded; the cache no longer holds the whole catalog.
+     */
+    public synchronized void discard(Integer productId) {
+        evict(productId);
+        complete = false;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long h = hits.sum();
+        long mi = misses.sum();
+        m.put("size", byId.size());
+        m.put("maxSize", maxSize);
+        m.put("complete", complete);
+        m.put("hits", h);
+        m.put("misses", mi);
+        m.put("evictions", evictions.sum());
+        m.put("hitRate", h + mi == 0 ? 0.0 : (double) h / (h + mi));
+        return m;
+    }
+
+    private void evictOverflow() {
+        while (byId.size() > maxSize) {
+            Map.Entry<Integer, ProductResponse> eldest = byId.entrySet().iterator().next();
+            byId.remove(eldest.getKey());
+            if (eldest.getValue().getSlug() != null) idBySlug.remove(eldest.getValue().getSlug());
+            evictions.increment();
+            complete = false;
+        }
+    }
+
+    private void markWritten(Integer productId) {
+        if (lastWrite.size() >= maxSize) {
+            lastWrite.clear();
+            writeFloor = writeSeq;
+        }
+        lastWrite.put(productId, ++writeSeq);
+    }
+
+    private boolean writtenAfter(Integer productId, long stamp) {
+        return lastWrite.getOrDefault(productId, writeFloor) > stamp;
+    }
+
+    private static ProductResponse copy(ProductResponse r) {
+        ProductResponse c = new ProductResponse();
+        BeanUtils.copyProperties(r, c);
+        if (r.getImages() != null) c.setImages(new ArrayList<>(r.getImages()));
+        return c;
+    }
+
+    private void record(boolean hit) {
+        if (hit) hits.increment(); else misses.increment();
+    }
+}
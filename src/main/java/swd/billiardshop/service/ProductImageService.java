@@ -18,13 +18,16 @@ public class ProductImageService {
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
     private final CloudinaryService cloudinaryService;
+    private final ProductService productService;
 
     public ProductImageService(ProductImageRepository productImageRepository,
                                ProductRepository productRepository,
-                               CloudinaryService cloudinaryService) {
+                               CloudinaryService cloudinaryService,
+                               ProductService productService) {
         this.productImageRepository = productImageRepository;
         this.productRepository = productRepository;
         this.cloudinaryService = cloudinaryService;
+        this.productService = productService;
     }
 
     @Transactional
@@ -48,7 +51,9 @@ public class ProductImageService {
                 .altText(file.getOriginalFilename())
                 .isPrimary(false)
                 .build();
-        return productImageRepository.save(img);
+        ProductImage saved = productImageRepository.save(img);
+        productService.refreshProduct(productId);
+        return saved;
     }
 
     @Transactional
@@ -81,6 +86,7 @@ public class ProductImageService {
                     .build();
             saved.add(productImageRepository.save(img));
         }
+        productService.refreshProduct(productId);
         return saved;
     }
 
@@ -99,5 +105,6 @@ public class ProductImageService {
             i.setIsPrimary(i.getImageId().equals(imageId));
         }
         productImageRepository.saveAll(images);
+        productService.refreshProduct(productId);
     }
 }
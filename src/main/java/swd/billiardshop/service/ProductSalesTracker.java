@@ -0,0 +1,216 @@
+package swd.billiardshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.entity.OrderItem;
+import swd.billiardshop.util.TransactionUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Incrementally maintained product sales counts and best-seller rankings.
+ * Order flows report quantity deltas (positive when an order is placed, negative when it is cancelled
+ * or its delivery is returned); deltas are buffered per product and flushed to products.sales_count
+ * in one JDBC batch. Products with sales are also kept in a set per category (and one across the catalog)
+ * ordered by their in-memory totals; a flush re-positions only the products it changed and re-reads the
+ * top K of the categories they are in, so best sellers are served without sorting the table.
+ */
+@Slf4j
+@Component
+public class ProductSalesTracker {
+    private static final Integer ALL_CATEGORIES = 0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final int topK;
+
+    private final ConcurrentHashMap<Integer, LongAdder> recorded = new ConcurrentHashMap<>();
+    // productId -> recorded quantity already written to the database; adders are never reset so nothing is lost
+    private final Map<Integer, Long> flushed = new HashMap<>();
+    // in-memory totals and category of every product, guarded by this
+    private final Map<Integer, Long> totals = new HashMap<>();
+    private final Map<Integer, Integer> categoryOf = new HashMap<>();
+    // categoryId (ALL_CATEGORIES for the catalog) -> products with sales, lowest total first; guarded by this
+    private final Map<Integer, TreeSet<Integer>> ranked = new HashMap<>();
+    // ties go to the lower product id; totals of ranked products may only change while they are unranked
+    private final Comparator<Integer> bySales = Comparator.<Integer>comparingLong(totals::get).thenComparing(Comparator.reverseOrder());
+    private volatile Map<Integer, List<Integer>> topByCategory = Collections.emptyMap();
+    private volatile boolean ready = false;
+
+    public ProductSalesTracker(JdbcTemplate jdbcTemplate,
+                               ProductCatalogCache productCatalogCache,
+                               ProductSearchIndex productSearchIndex,
+                               @Value("${catalog.best-sellers.top-k:20}") int topK) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productCatalogCache = productCatalogCache;
+        this.productSearchIndex = productSearchIndex;
+        this.topK = topK;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTotals() {
+        try {
+            synchronized (this) {
+                totals.clear();
+                categoryOf.clear();
+                ranked.clear();
+                jdbcTemplate.query("SELECT product_id, category_id, COALESCE(sales_count, 0) FROM products", rs -> {
+                    int id = rs.getInt(1);
+                    totals.put(id, rs.getLong(3));
+                    categoryOf.put(id, (Integer) rs.getObject(2));
+                });
+                totals.keySet().forEach(this::rank);
+                topByCategory = Collections.emptyMap();
+                publish(new HashSet<>(ranked.keySet()));
+            }
+            ready = true;
+            log.info("Best-seller rankings built from {} products", totals.size());
+        } catch (Exception e) {
+            log.warn("Loading product sales totals failed, best sellers will be read from the database", e);
+        }
+    }
+
+    /**
+     * Record sold quantities (productId -> quantity, negative to reverse) once the current transaction commits.
+     */
+    public void record(Map<Integer, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) return;
+        TransactionUtil.afterCommit(() -> quantities.forEach((id, qty) -> {
+            if (id != null && qty != null && qty != 0) recorded.computeIfAbsent(id, k -> new LongAdder()).add(qty);
+        }));
+    }
+
+    /**
+     * Quantity per product of the given order items, multiplied by sign (1 to count, -1 to reverse).
+     */
+    public static Map<Integer, Integer> quantities(List<OrderItem> items, int sign) {
+        Map<Integer, Integer> q = new HashMap<>();
+        for (OrderItem oi : items) {
+            if (oi.getProduct() == null || oi.getQuantity() == null) continue;
+            q.merge(oi.getProduct().getProductId(), sign * oi.getQuantity(), Integer::sum);
+        }
+        return q;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Best-selling product ids, highest first; categoryId null ranks the whole catalog.
+     */
+    public List<Integer> topSellers(Integer categoryId, int limit) {
+        List<Integer> top = topByCategory.getOrDefault(categoryId == null ? ALL_CATEGORIES : categoryId, Collections.emptyList());
+        return top.size() <= limit ? top : top.subList(0, limit);
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.sales.flush-interval-ms:30000}")
+    public synchronized void flush() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder> e : recorded.entrySet()) {
+            long delta = e.getValue().sum() - flushed.getOrDefault(e.getKey(), 0L);
+            if (delta != 0) deltas.put(e.getKey(), delta);
+        }
+        if (deltas.isEmpty()) return;
+
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Map.Entry<Integer, Long> e : deltas.entrySet()) args.add(new Object[]{e.getValue(), e.getKey()});
+        try {
+            jdbcTemplate.batchUpdate("UPDATE products SET sales_count = GREATEST(COALESCE(sales_count, 0) + ?, 0) WHERE product_id = ?", args);
+        } catch (Exception e) {
+            // keep the deltas pending, the next flush retries them
+            log.warn("Flushing {} product sales deltas failed", deltas.size(), e);
+            return;
+        }
+        deltas.forEach((id, delta) -> flushed.merge(id, delta, Long::sum));
+        productCatalogCache.addSales(deltas);
+        productSearchIndex.addSales(deltas);
+        if (!ready) return;
+
+        // categories may have changed (or products may be new) since the totals were loaded
+        Set<Integer> touched = new HashSet<>();
+        String placeholders = String.join(",", Collections.nCopies(deltas.size(), "?"));
+        Map<Integer, Integer> current = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, category_id FROM products WHERE product_id IN (" + placeholders + ")",
+                rs -> { current.put(rs.getInt(1), (Integer) rs.getObject(2)); }, deltas.keySet().toArray());
+        deltas.forEach((id, delta) -> {
+            touched.add(categoryOf.get(id));
+            unrank(id);
+            if (!current.containsKey(id)) {
+                totals.remove(id);
+                categoryOf.remove(id);
+                return;
+            }
+            totals.merge(id, delta, (a, b) -> Math.max(0, a + b));
+            categoryOf.put(id, current.get(id));
+            touched.add(current.get(id));
+            rank(id);
+        });
+        publish(touched);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void rank(Integer id) {
+        Long total = totals.get(id);
+        if (total == null || total <= 0) return;
+        ranked.computeIfAbsent(ALL_CATEGORIES, k -> new TreeSet<>(bySales)).add(id);
+        Integer cat = categoryOf.get(id);
+        if (cat != null) ranked.computeIfAbsent(cat, k -> new TreeSet<>(bySales)).add(id);
+    }
+
+    private void unrank(Integer id) {
+        Long total = totals.get(id);
+        if (total == null || total <= 0) return;
+        ranked.get(ALL_CATEGORIES).remove(id);
+        Integer cat = categoryOf.get(id);
+        if (cat == null) return;
+        TreeSet<Integer> inCategory = ranked.get(cat);
+        inCategory.remove(id);
+        if (inCategory.isEmpty()) ranked.remove(cat);
+    }
+
+    /**
+     * Replace the top-K lists of the given categories and the catalog-wide list with the current ranking.
+     */
+    private void publish(Set<Integer> categories) {
+        Map<Integer, List<Integer>> next = new HashMap<>(topByCategory);
+        Set<Integer> changed = new HashSet<>(categories);
+        changed.add(ALL_CATEGORIES);
+        for (Integer cat : changed) {
+            if (cat == null) continue;
+            TreeSet<Integer> set = ranked.get(cat);
+            if (set == null) {
+                next.remove(cat);
+                continue;
+            }
+            List<Integer> top = new ArrayList<>(Math.min(topK, set.size()));
+            for (Integer id : set.descendingSet()) {
+                if (top.size() == topK) break;
+                top.add(id);
+            }
+            next.put(cat, Collections.unmodifiableList(top));
+        }
+        topByCategory = next;
+    }
+}
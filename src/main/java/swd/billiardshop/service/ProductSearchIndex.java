@@ -0,0 +1,337 @@
+package swd.billiardshop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.dto.request.ProductSearchRequest;
+import swd.billiardshop.dto.response.ProductFacetsResponse;
+import swd.billiardshop.dto.response.ProductResponse;
+import swd.billiardshop.util.SlugUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name, description, brand, material and SKU.
+ * Terms are diacritic-folded and lower-cased so "co bida" matches "Cơ bida".
+ * Every query term matches indexed terms by prefix (search-as-you-type); exact term matches score higher.
+ * The index also keeps the few columns search filters, sorts and facets on, so a search never touches the database.
+ */
+@Component
+public class ProductSearchIndex {
+    private static final float NAME_WEIGHT = 3f;
+    private static final float SKU_WEIGHT = 3f;
+    private static final float BRAND_WEIGHT = 2f;
+    private static final float MATERIAL_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    // upper bounds (VND, exclusive) of the price facet bands; the last band is open-ended
+    private static final long[] PRICE_BANDS = {500_000L, 1_000_000L, 3_000_000L, 5_000_000L, 10_000_000L};
+    private static final int[] RATING_FLOORS = {4, 3, 2, 1};
+
+    private enum Dimension { CATEGORY, BRAND, MATERIAL, PRICE, RATING }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // term -> (productId -> weight); sorted so prefix lookups are a range scan
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    private final Map<Integer, IndexedProduct> docs = new HashMap<>();
+    private final Map<Integer, Set<String>> termsByDoc = new HashMap<>();
+    private volatile boolean ready = false;
+
+    @Data
+    @AllArgsConstructor
+    public static class IndexedProduct {
+        private Integer productId;
+        private Integer categoryId;
+        private String brand;
+        private String material;
+        private BigDecimal price;
+        private BigDecimal averageRating;
+        private int stockQuantity;
+        private int salesCount;
+        private long viewCount;
+        private LocalDateTime createdAt;
+    }
+
+    /**
+     * False until the first full build, callers should use the JPA search path meanwhile.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void rebuild(Collection<ProductResponse> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            termsByDoc.clear();
+            for (ProductResponse p : products) addLocked(p);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(ProductResponse p) {
+        if (p == null || p.getProductId() == null) return;
+        lock.writeLock().lock();
+        try {
+            removeLocked(p.getProductId());
+            addLocked(p);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply flushed view deltas so the "views" sort follows the counter without a reindex.
+     */
+    public void addViews(Map<Integer, Long> deltas) {
+        lock.writeLock().lock();
+        try {
+            deltas.forEach((id, delta) -> {
+                IndexedProduct d = docs.get(id);
+                if (d != null) d.setViewCount(d.getViewCount() + delta);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply flushed sales deltas so the "sales" sort follows orders without a reindex.
+     */
+    public void addSales(Map<Integer, Long> deltas) {
+        lock.writeLock().lock();
+        try {
+            deltas.forEach((id, delta) -> {
+                IndexedProduct d = docs.get(id);
+                if (d != null) d.setSalesCount((int) Math.max(0, d.getSalesCount() + delta));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class SearchResult {
+        private List<Integer> productIds;
+        private ProductFacetsResponse facets;
+    }
+
+    /**
+     * Ids of all products matching the criteria, ordered by criteria.sortBy.
+     * Without sortBy, text queries are ordered by relevance and plain listings by newest id first.
+     * When withFacets is set, facet counts are collected in the same pass over the text matches.
+     */
+    public SearchResult search(ProductSearchRequest criteria, boolean withFacets) {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Float> scores = matchText(criteria.getQ());
+            List<IndexedProduct> matches = new ArrayList<>();
+            FacetCounter facets = withFacets ? new FacetCounter() : null;
+            for (IndexedProduct d : (scores == null ? docs.values() : docsOf(scores.keySet()))) {
+                Dimension failed = null;
+                boolean rejected = Boolean.TRUE.equals(criteria.getInStockOnly()) && d.getStockQuantity() <= 0;
+                for (Dimension dim : Dimension.values()) {
+                    if (rejected) break;
+                    if (!matches(d, criteria, dim)) {
+                        // a product failing exactly one facet dimension still counts toward that facet
+                        if (failed != null) rejected = true;
+                        failed = dim;
+                    }
+                }
+                if (rejected) continue;
+                if (failed == null) matches.add(d);
+                if (facets != null) facets.add(d, failed);
+            }
+            matches.sort(comparator(criteria.getSortBy(), scores));
+            List<Integer> ids = new ArrayList<>(matches.size());
+            for (IndexedProduct d : matches) ids.add(d.getProductId());
+            return new SearchResult(ids, facets == null ? null : facets.toResponse());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return Collections.emptyList();
+        String folded = SlugUtil.foldDiacritics(text).toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String t : folded.split("[^a-z0-9]+")) {
+            if (!t.isEmpty()) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    // ---- internals, callers hold the lock ----
+
+    private void addLocked(ProductResponse p) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, p.getName(), NAME_WEIGHT);
+        addField(weights, p.getSku(), SKU_WEIGHT);
+        addField(weights, p.getBrand(), BRAND_WEIGHT);
+        addField(weights, p.getMaterial(), MATERIAL_WEIGHT);
+        addField(weights, p.getDescription(), DESCRIPTION_WEIGHT);
+        for (Map.Entry<String, Float> e : weights.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(p.getProductId(), e.getValue());
+        }
+        termsByDoc.put(p.getProductId(), weights.keySet());
+        docs.put(p.getProductId(), new IndexedProduct(
+                p.getProductId(),
+                p.getCategoryId(),
+                p.getBrand(),
+                p.getMaterial(),
+                p.getPrice(),
+                p.getAverageRating() == null ? BigDecimal.ZERO : p.getAverageRating(),
+                p.getStockQuantity() == null ? 0 : p.getStockQuantity(),
+                p.getSalesCount() == null ? 0 : p.getSalesCount(),
+                p.getViewCount() == null ? 0 : p.getViewCount(),
+                p.getCreatedAt()));
+    }
+
+    private void removeLocked(Integer productId) {
+        if (productId == null) return;
+        docs.remove(productId);
+        Set<String> terms = termsByDoc.remove(productId);
+        if (terms == null) return;
+        for (String t : terms) {
+            Map<Integer, Float> posting = postings.get(t);
+            if (posting == null) continue;
+            posting.remove(productId);
+            if (posting.isEmpty()) postings.remove(t);
+        }
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        for (String t : tokenize(text)) weights.merge(t, weight, Float::sum);
+    }
+
+    /**
+     * AND-semantics text match; returns null when there is no text query, and no matches for a
+     * query without any searchable term (e.g. only punctuation).
+     */
+    private Map<Integer, Float> matchText(String q) {
+        if (q == null || q.isBlank()) return null;
+        List<String> terms = tokenize(q);
+        if (terms.isEmpty()) return new HashMap<>();
+        Map<Integer, Float> result = null;
+        for (String term : terms) {
+            Map<Integer, Float> termScores = new HashMap<>();
+            for (Map.Entry<String, Map<Integer, Float>> e : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                float factor = e.getKey().equals(term) ? 1f : PREFIX_MATCH_FACTOR;
+                for (Map.Entry<Integer, Float> posting : e.getValue().entrySet()) {
+                    termScores.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+                }
+            }
+            if (result == null) {
+                result = termScores;
+            } else {
+                Map<Integer, Float> next = new HashMap<>();
+                for (Map.Entry<Integer, Float> e : result.entrySet()) {
+                    Float s = termScores.get(e.getKey());
+                    if (s != null) next.put(e.getKey(), e.getValue() + s);
+                }
+                result = next;
+            }
+            if (result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    private List<IndexedProduct> docsOf(Set<Integer> ids) {
+        List<IndexedProduct> list = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            IndexedProduct d = docs.get(id);
+            if (d != null) list.add(d);
+        }
+        return list;
+    }
+
+    private static boolean matches(IndexedProduct d, ProductSearchRequest c, Dimension dim) {
+        return switch (dim) {
+            case CATEGORY -> c.getCategoryId() == null || c.getCategoryId().equals(d.getCategoryId());
+            case BRAND -> c.getBrand() == null || c.getBrand().equalsIgnoreCase(d.getBrand());
+            case MATERIAL -> c.getMaterial() == null || c.getMaterial().equalsIgnoreCase(d.getMaterial());
+            case PRICE -> (c.getMinPrice() == null || (d.getPrice() != null && d.getPrice().compareTo(c.getMinPrice()) >= 0))
+                    && (c.getMaxPrice() == null || (d.getPrice() != null && d.getPrice().compareTo(c.getMaxPrice()) <= 0));
+            case RATING -> c.getMinRating() == null || d.getAverageRating().compareTo(BigDecimal.valueOf(c.getMinRating())) >= 0;
+        };
+    }
+
+    /**
+     * Accumulates facet counts. A product that passes all filters counts toward every facet;
+     * one that fails a single dimension counts only toward that dimension's facet.
+     */
+    private static class FacetCounter {
+        private final Map<String, Long> brands = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<String, Long> materials = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final long[] priceBands = new long[PRICE_BANDS.length + 1];
+        private final long[] ratingFloors = new long[RATING_FLOORS.length];
+        private final Map<Integer, Long> categories = new TreeMap<>();
+
+        void add(IndexedProduct d, Dimension failed) {
+            if ((failed == null || failed == Dimension.BRAND) && d.getBrand() != null) brands.merge(d.getBrand(), 1L, Long::sum);
+            if ((failed == null || failed == Dimension.MATERIAL) && d.getMaterial() != null) materials.merge(d.getMaterial(), 1L, Long::sum);
+            if ((failed == null || failed == Dimension.CATEGORY) && d.getCategoryId() != null) categories.merge(d.getCategoryId(), 1L, Long::sum);
+            if ((failed == null || failed == Dimension.PRICE) && d.getPrice() != null) {
+                int band = 0;
+                while (band < PRICE_BANDS.length && d.getPrice().compareTo(BigDecimal.valueOf(PRICE_BANDS[band])) >= 0) band++;
+                priceBands[band]++;
+            }
+            if (failed == null || failed == Dimension.RATING) {
+                for (int i = 0; i < RATING_FLOORS.length; i++) {
+                    if (d.getAverageRating().compareTo(BigDecimal.valueOf(RATING_FLOORS[i])) >= 0) ratingFloors[i]++;
+                }
+            }
+        }
+
+        ProductFacetsResponse toResponse() {
+            ProductFacetsResponse r = new ProductFacetsResponse();
+            r.getBrands().putAll(brands);
+            r.getMaterials().putAll(materials);
+            r.getCategories().putAll(categories);
+            long lower = 0;
+            for (int i = 0; i < priceBands.length; i++) {
+                String key = i < PRICE_BANDS.length ? lower + "-" + PRICE_BANDS[i] : lower + "-";
+                r.getPriceRanges().put(key, priceBands[i]);
+                if (i < PRICE_BANDS.length) lower = PRICE_BANDS[i];
+            }
+            for (int i = 0; i < RATING_FLOORS.length; i++) r.getRatings().put(RATING_FLOORS[i], ratingFloors[i]);
+            return r;
+        }
+    }
+
+    private static Comparator<IndexedProduct> comparator(String sortBy, Map<Integer, Float> scores) {
+        Comparator<IndexedProduct> byIdDesc = Comparator.comparing(IndexedProduct::getProductId, Comparator.reverseOrder());
+        if (sortBy == null) {
+            if (scores == null) return byIdDesc;
+            return Comparator.<IndexedProduct, Float>comparing(d -> scores.getOrDefault(d.getProductId(), 0f), Comparator.reverseOrder())
+                    .thenComparing(byIdDesc);
+        }
+        Comparator<IndexedProduct> primary = switch (sortBy) {
+            case "price_asc" -> Comparator.comparing(IndexedProduct::getPrice, Comparator.nullsLast(Comparator.naturalOrder()));
+            case "price_desc" -> Comparator.comparing(IndexedProduct::getPrice, Comparator.nullsLast(Comparator.reverseOrder()));
+            case "rating" -> Comparator.comparing(IndexedProduct::getAverageRating, Comparator.reverseOrder());
+            case "sales" -> Comparator.comparingInt(IndexedProduct::getSalesCount).reversed();
+            case "views" -> Comparator.comparingLong(IndexedProduct::getViewCount).reversed();
+            case "newest" -> Comparator.comparing(IndexedProduct::getCreatedAt, Comparator.nullsLast(Comparator.reverseOrder()));
+            default -> null;
+        };
+        return primary == null ? byIdDesc : primary.thenComparing(byIdDesc);
+    }
+}
@@ -1,5 +1,9 @@
 package swd.billiardshop.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import swd.billiardshop.entity.Product;
@@ -8,46 +12,149 @@ import swd.billiardshop.entity.User;
 import swd.billiardshop.repository.ProductRepository;
 import swd.billiardshop.repository.CategoryRepository;
 import swd.billiardshop.dto.request.ProductRequest;
+import swd.billiardshop.dto.request.ProductSearchRequest;
+import swd.billiardshop.dto.response.CursorPageResponse;
 import swd.billiardshop.dto.response.ProductResponse;
+import swd.billiardshop.dto.response.ProductSearchResponse;
 import swd.billiardshop.dto.response.ProductImageResponse;
 import swd.billiardshop.repository.ProductImageRepository;
-import swd.billiardshop.entity.ProductImage;
+import swd.billiardshop.repository.ProductImageView;
 import swd.billiardshop.enums.ProductStatus;
 import swd.billiardshop.exception.AppException;
 import swd.billiardshop.exception.ErrorCode;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import swd.billiardshop.repository.KeysetSpecifications;
 import swd.billiardshop.repository.ProductSpecifications;
+import swd.billiardshop.util.CursorUtil;
+import swd.billiardshop.util.SlugUtil;
+import swd.billiardshop.util.TransactionUtil;
 
+@Slf4j
 @Service
 public class ProductService {
+    // loads of a product that lose to concurrent cache writes before refreshProducts drops it
+    private static final int REFRESH_ATTEMPTS = 3;
+
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
     private final ProductImageRepository productImageRepository;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductViewCounter productViewCounter;
+    private final ProductSalesTracker productSalesTracker;
+    private final SlugAllocator slugAllocator;
+    private final CartCache cartCache;
+    private final StockShards stockShards;
 
     public ProductService(ProductRepository productRepository,
                           CategoryRepository categoryRepository,
-                          ProductImageRepository productImageRepository) {
+                          ProductImageRepository productImageRepository,
+                          ProductCatalogCache productCatalogCache,
+                          ProductSearchIndex productSearchIndex,
+                          ProductViewCounter productViewCounter,
+                          ProductSalesTracker productSalesTracker,
+                          SlugAllocator slugAllocator,
+                          CartCache cartCache,
+                          StockShards stockShards) {
         this.productRepository = productRepository;
         this.categoryRepository = categoryRepository;
         this.productImageRepository = productImageRepository;
+        this.productCatalogCache = productCatalogCache;
+        this.productSearchIndex = productSearchIndex;
+        this.productViewCounter = productViewCounter;
+        this.productSalesTracker = productSalesTracker;
+        this.slugAllocator = slugAllocator;
+        this.cartCache = cartCache;
+        this.stockShards = stockShards;
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmCatalogCache() {
+        try {
+            List<ProductResponse> all = loadCatalog();
+            log.info("Product catalog cache and search index warmed with {} products", all.size());
+        } catch (Exception e) {
+            log.warn("Product catalog warm-up failed, reads will fall back to the database", e);
+        }
+    }
+
+    /**
+     * Every product, from the cache while it holds the whole catalog and otherwise straight from the
+     * database; the read path never refills the cache or rebuilds the index (see reloadCatalogCache).
+     */
     public List<ProductResponse> getAllProducts() {
-        return productRepository.findAll().stream().map(this::toResponse).collect(Collectors.toList());
+        return productCatalogCache.getAll()
+                .orElseGet(() -> withImages(productRepository.findResponses(null, Sort.by("productId"), 0, 0)));
+    }
+
+    /**
+     * Make the catalog cache whole again when a load raced a change, as long as the catalog fits in it,
+     * and build the search index if the warm-up could not.
+     */
+    @Scheduled(fixedDelayString = "${catalog.cache.reload-interval-ms:60000}")
+    public void reloadCatalogCache() {
+        if (!productSearchIndex.isReady()) {
+            loadCatalog();
+            return;
+        }
+        if (productCatalogCache.isComplete() || productRepository.count() > productCatalogCache.maxSize()) return;
+        long stamp = productCatalogCache.stamp();
+        productCatalogCache.loadAll(withImages(productRepository.findResponses(null, Sort.by("productId"), 0, 0)), stamp);
     }
 
     public Page<ProductResponse> searchProducts(String q, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice,
                                                 String brand, String material, Integer minRating, Boolean inStockOnly,
                                                 String sortBy, Integer page, Integer size) {
+        return search(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly, sortBy, page, size, false).getResults();
+    }
+
+    /**
+     * Same as searchProducts, plus brand/material/price/rating/category facet counts computed by the search index
+     * in the same pass. Facets are null while the index is still cold.
+     */
+    public ProductSearchResponse searchProductsWithFacets(String q, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                                          String brand, String material, Integer minRating, Boolean inStockOnly,
+                                                          String sortBy, Integer page, Integer size) {
+        return search(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly, sortBy, page, size, true);
+    }
+
+    private ProductSearchResponse search(String q, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                         String brand, String material, Integer minRating, Boolean inStockOnly,
+                                         String sortBy, Integer page, Integer size, boolean withFacets) {
+        Pageable pageable = PageRequest.of(page == null ? 0 : page, size == null ? 20 : size);
+        if (productSearchIndex.isReady()) {
+            ProductSearchRequest criteria = new ProductSearchRequest();
+            criteria.setQ(q);
+            criteria.setCategoryId(categoryId);
+            criteria.setMinPrice(minPrice);
+            criteria.setMaxPrice(maxPrice);
+            criteria.setBrand(brand);
+            criteria.setMaterial(material);
+            criteria.setMinRating(minRating);
+            criteria.setInStockOnly(inStockOnly);
+            criteria.setSortBy(sortBy);
+            ProductSearchIndex.SearchResult found = productSearchIndex.search(criteria, withFacets);
+            List<Integer> ids = found.getProductIds();
+            int from = (int) Math.min(pageable.getOffset(), ids.size());
+            int to = Math.min(from + pageable.getPageSize(), ids.size());
+            return new ProductSearchResponse(new PageImpl<>(responsesByIds(ids.subList(from, to)), pageable, ids.size()), found.getFacets());
+        }
+
+        // index still cold: fall back to the LIKE specification
         Specification<Product> spec = ProductSpecifications.search(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly);
         Sort sort = Sort.by(Sort.Direction.DESC, "productId");
         if (sortBy != null) {
@@ -56,17 +163,132 @@ public class ProductService {
                 case "price_desc" -> sort = Sort.by(Sort.Direction.DESC, "price");
                 case "rating" -> sort = Sort.by(Sort.Direction.DESC, "averageRating");
                 case "sales" -> sort = Sort.by(Sort.Direction.DESC, "salesCount");
+                case "views" -> sort = Sort.by(Sort.Direction.DESC, "viewCount");
                 case "newest" -> sort = Sort.by(Sort.Direction.DESC, "createdAt");
             }
         }
-        Pageable pageable = PageRequest.of(page == null ? 0 : page, size == null ? 20 : size, sort);
-        Page<Product> results = productRepository.findAll(spec, pageable);
-        return results.map(this::toResponse);
+        Pageable sorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort);
+        List<ProductResponse> content = withImages(productRepository.findResponses(spec, sorted.getSort(), sorted.getOffset(), sorted.getPageSize()));
+        return new ProductSearchResponse(new PageImpl<>(content, sorted, productRepository.count(spec)), null);
+    }
+
+    /**
+     * Keyset (seek) variant of searchProducts for deep scrolling: each page continues from the cursor
+     * of the previous one with a WHERE on (sort value, productId), no OFFSET and no COUNT query.
+     */
+    public CursorPageResponse<ProductResponse> searchProductsByCursor(String q, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                                                      String brand, String material, Integer minRating, Boolean inStockOnly,
+                                                                      String sortBy, String cursor, Integer size) {
+        Specification<Product> spec = ProductSpecifications.search(q, categoryId, minPrice, maxPrice, brand, material, minRating, inStockOnly);
+        int limit = size == null ? 20 : size;
+        String sortKey = sortBy == null ? "default" : sortBy;
+        return switch (sortKey) {
+            case "price_asc" -> seek(spec, sortKey, "price", true, BigDecimal::new, ProductResponse::getPrice, cursor, limit);
+            case "price_desc" -> seek(spec, sortKey, "price", false, BigDecimal::new, ProductResponse::getPrice, cursor, limit);
+            case "rating" -> seek(spec, sortKey, "averageRating", false, BigDecimal::new, ProductResponse::getAverageRating, cursor, limit);
+            case "sales" -> seek(spec, sortKey, "salesCount", false, Integer::valueOf, ProductResponse::getSalesCount, cursor, limit);
+            case "views" -> seek(spec, sortKey, "viewCount", false, Integer::valueOf, ProductResponse::getViewCount, cursor, limit);
+            case "newest" -> seek(spec, sortKey, "createdAt", false, LocalDateTime::parse, ProductResponse::getCreatedAt, cursor, limit);
+            default -> seek(spec, "default", null, false, Integer::valueOf, ProductResponse::getProductId, cursor, limit);
+        };
+    }
+
+    private <V extends Comparable<? super V>> CursorPageResponse<ProductResponse> seek(Specification<Product> spec, String sortKey, String field, boolean ascending,
+                                                                                      Function<String, V> parse, Function<ProductResponse, V> extract,
+                                                                                      String cursor, int size) {
+        if (size <= 0 || size > 100) throw new AppException(ErrorCode.INVALID_REQUEST, "size must be between 1 and 100");
+        CursorUtil.Cursor c = CursorUtil.decode(cursor, sortKey);
+        if (c != null) {
+            V value = c.parseValue(parse);
+            spec = spec.and(KeysetSpecifications.after(field, value, "productId", c.getId(), ascending));
+        }
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = field == null ? Sort.by(direction, "productId") : Sort.by(direction, field, "productId");
+        // fetch one extra row to learn whether there is a next page without counting
+        List<ProductResponse> rows = productRepository.findResponses(spec, sort, 0, size + 1);
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
+        String next = null;
+        if (hasNext) {
+            ProductResponse last = rows.get(rows.size() - 1);
+            next = CursorUtil.encode(sortKey, field == null ? null : extract.apply(last), last.getProductId());
+        }
+        return new CursorPageResponse<>(withImages(rows), next, hasNext);
     }
 
     public ProductResponse getProduct(Integer id) {
-        return productRepository.findById(id).map(this::toResponse)
-                .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "Product not found"));
+        ProductResponse response = productCatalogCache.get(id).orElseGet(() -> {
+            long stamp = productCatalogCache.stamp();
+            ProductResponse r = productRepository.findById(id).map(this::toResponse)
+                    .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "Product not found"));
+            productCatalogCache.putLoaded(r, stamp);
+            return r;
+        });
+        productViewCounter.increment(response.getProductId());
+        return response;
+    }
+
+    public ProductResponse getProductBySlug(String slug) {
+        ProductResponse response = productCatalogCache.getBySlug(slug).orElseGet(() -> {
+            long stamp = productCatalogCache.stamp();
+            ProductResponse r = productRepository.findBySlug(slug).map(this::toResponse)
+                    .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "Product not found"));
+            productCatalogCache.putLoaded(r, stamp);
+            return r;
+        });
+        productViewCounter.increment(response.getProductId());
+        return response;
+    }
+
+    /**
+     * Best-selling products, optionally within a category, from the in-memory ranking.
+     * Falls back to ordering by salesCount in the database until the ranking is built.
+     */
+    public List<ProductResponse> getBestSellers(Integer categoryId, int limit) {
+        if (limit <= 0) throw new AppException(ErrorCode.INVALID_REQUEST, "limit must be positive");
+        if (productSalesTracker.isReady()) return responsesByIds(productSalesTracker.topSellers(categoryId, limit));
+        Specification<Product> spec = ProductSpecifications.search(null, categoryId, null, null, null, null, null, null);
+        return withImages(productRepository.findResponses(spec, Sort.by(Sort.Direction.DESC, "salesCount", "productId"), 0, limit));
+    }
+
+    /**
+     * Reload a product into the catalog cache and search index once the current transaction commits.
+     * Call this after changing stock (or other indexed columns) outside ProductService.
+     */
+    public void refreshProduct(Integer productId) {
+        refreshProducts(List.of(productId));
+    }
+
+    /**
+     * refreshProduct for several products, reloaded with one query. Entries are replaced in place, so
+     * a complete cache stays complete; a load that loses to concurrent cache writes is retried, and a
+     * product still not reloaded after that is dropped from the cache.
+     */
+    public void refreshProducts(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) return;
+        List<Integer> ids = new java.util.ArrayList<>(productIds);
+        TransactionUtil.afterCommit(() -> {
+            for (Integer id : ids) cartCache.evictProduct(id);
+            Set<Integer> pending = new java.util.HashSet<>(ids);
+            for (int attempt = 0; attempt < REFRESH_ATTEMPTS && !pending.isEmpty(); attempt++) {
+                long stamp = productCatalogCache.stamp();
+                List<Integer> batch = new java.util.ArrayList<>(pending);
+                Specification<Product> byIds = (root, query, cb) -> root.get("productId").in(batch);
+                Set<Integer> found = new java.util.HashSet<>();
+                for (ProductResponse r : withImages(productRepository.findResponses(byIds, Sort.unsorted(), 0, 0))) {
+                    found.add(r.getProductId());
+                    productSearchIndex.index(r);
+                    if (productCatalogCache.putLoaded(r, stamp)) pending.remove(r.getProductId());
+                }
+                for (Integer id : batch) {
+                    if (found.contains(id)) continue;
+                    productCatalogCache.evict(id);
+                    productSearchIndex.remove(id);
+                    pending.remove(id);
+                }
+            }
+            for (Integer id : pending) productCatalogCache.discard(id);
+        });
     }
 
     @Transactional
@@ -74,8 +296,14 @@ public class ProductService {
         validateRequestForCreate(req);
         if (productRepository.existsBySku(req.getSku()))
             throw new AppException(ErrorCode.INVALID_REQUEST, "SKU already exists");
-        if (productRepository.existsBySlug(req.getSlug()))
+        String slug;
+        if (req.getSlug() == null || req.getSlug().trim().isEmpty()) {
+            slug = slugAllocator.allocate(SlugAllocator.Scope.PRODUCTS, SlugUtil.toSlug(SlugUtil.foldDiacritics(req.getName())));
+        } else if (productRepository.existsBySlug(req.getSlug())) {
             throw new AppException(ErrorCode.INVALID_REQUEST, "Slug already exists");
+        } else {
+            slug = req.getSlug();
+        }
 
         Category category = null;
         if (req.getCategoryId() != null) {
@@ -86,7 +314,7 @@ public class ProductService {
         Product p = Product.builder()
                 .category(category)
                 .name(req.getName())
-                .slug(req.getSlug())
+                .slug(slug)
                 .description(req.getDescription())
                 .shortDescription(req.getShortDescription())
                 .originCountry(req.getOriginCountry())
@@ -113,7 +341,9 @@ public class ProductService {
             throw new AppException(ErrorCode.INVALID_REQUEST, "Min stock level cannot be greater than stock quantity");
 
         Product saved = productRepository.save(p);
-        return toResponse(saved);
+        ProductResponse r = toResponse(saved);
+        TransactionUtil.afterCommit(() -> cacheAndIndex(r));
+        return r;
     }
 
     @Transactional
@@ -167,14 +397,41 @@ public class ProductService {
             throw new AppException(ErrorCode.INVALID_REQUEST, "Min stock level cannot be greater than stock quantity");
 
         Product saved = productRepository.save(p);
+        // a sharded product keeps its stock in the shards; re-split the new total over them
+        if (req.getStockQuantity() != null) {
+            productRepository.flush();
+            stockShards.reset(id, req.getStockQuantity());
+        }
+        // reloaded after commit: the stock and counters in saved may be older than the row
+        refreshProduct(id);
         return toResponse(saved);
     }
 
+    /**
+     * Turn sharded stock on for a hot product (shards >= 2) or off (0 or 1). The current stock,
+     * including what is in existing shards, is spread evenly over the new shards.
+     */
+    @Transactional
+    public ProductResponse setStockShards(Integer id, int shards) {
+        Product p = productRepository.findById(id)
+                .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "Product not found"));
+        int total = stockShards.split(id, shards);
+        refreshProduct(id);
+        ProductResponse r = toResponse(p);
+        r.setStockQuantity(total);
+        return r;
+    }
+
     @Transactional
     public void deleteProduct(Integer id) {
         Product p = productRepository.findById(id)
                 .orElseThrow(() -> new AppException(ErrorCode.NOT_FOUND, "Product not found"));
         productRepository.delete(p);
+        TransactionUtil.afterCommit(() -> {
+            productCatalogCache.evict(id);
+            productSearchIndex.remove(id);
+            cartCache.evictProduct(id);
+        });
     }
 
     @Transactional
@@ -184,6 +441,42 @@ public class ProductService {
         p.setAverageRating(average == null ? BigDecimal.ZERO : average);
         p.setReviewCount(count == null ? 0 : count);
         productRepository.save(p);
+        refreshProduct(productId);
+    }
+
+    private List<ProductResponse> loadCatalog() {
+        long stamp = productCatalogCache.stamp();
+        List<ProductResponse> all = withImages(productRepository.findResponses(null, Sort.by("productId"), 0, 0));
+        productCatalogCache.loadAll(all, stamp);
+        productSearchIndex.rebuild(all);
+        return all;
+    }
+
+    private void cacheAndIndex(ProductResponse r) {
+        productCatalogCache.put(r);
+        productSearchIndex.index(r);
+    }
+
+    /**
+     * Responses for the given ids in the same order, from the catalog cache where possible
+     * and with one findAllById for the misses. Ids that no longer exist are skipped.
+     */
+    private List<ProductResponse> responsesByIds(List<Integer> ids) {
+        Map<Integer, ProductResponse> found = new java.util.HashMap<>();
+        List<Integer> missing = new java.util.ArrayList<>();
+        for (Integer id : ids) {
+            ProductResponse cached = productCatalogCache.get(id).orElse(null);
+            if (cached != null) found.put(id, cached); else missing.add(id);
+        }
+        if (!missing.isEmpty()) {
+            long stamp = productCatalogCache.stamp();
+            Specification<Product> byIds = (root, query, cb) -> root.get("productId").in(missing);
+            for (ProductResponse r : withImages(productRepository.findResponses(byIds, Sort.unsorted(), 0, 0))) {
+                productCatalogCache.putLoaded(r, stamp);
+                found.put(r.getProductId(), r);
+            }
+        }
+        return ids.stream().map(found::get).filter(java.util.Objects::nonNull).collect(Collectors.toList());
     }
 
     private void validateRequestForCreate(ProductRequest req) {
@@ -193,8 +486,6 @@ public class ProductService {
             throw new AppException(ErrorCode.INVALID_REQUEST, "Product name too long");
         if (req.getSku() == null || req.getSku().trim().isEmpty())
             throw new AppException(ErrorCode.INVALID_REQUEST, "SKU is required");
-        if (req.getSlug() == null || req.getSlug().trim().isEmpty())
-            throw new AppException(ErrorCode.INVALID_REQUEST, "Slug is required");
         if (req.getPrice() == null || req.getPrice().compareTo(BigDecimal.ZERO) <= 0)
             throw new AppException(ErrorCode.INVALID_REQUEST, "Price must be > 0");
         if (req.getComparePrice() != null && req.getComparePrice().compareTo(req.getPrice()) < 0)
@@ -208,6 +499,39 @@ public class ProductService {
     }
 
     private ProductResponse toResponse(Product p) {
+        ProductResponse r = toScalarResponse(p);
+        r.setImages(productImageRepository.findByProductProductIdOrderBySortOrderAsc(p.getProductId()).stream().map(img -> {
+            ProductImageResponse ir = new ProductImageResponse();
+            ir.setImageId(img.getImageId());
+            ir.setImageUrl(img.getImageUrl());
+            ir.setAltText(img.getAltText());
+            ir.setIsPrimary(img.getIsPrimary());
+            return ir;
+        }).collect(Collectors.toList()));
+        return r;
+    }
+
+    /**
+     * Attach images to a list of projected responses with one IN (...) query
+     * instead of one query per product.
+     */
+    private List<ProductResponse> withImages(List<ProductResponse> responses) {
+        if (responses.isEmpty()) return responses;
+        List<Integer> ids = responses.stream().map(ProductResponse::getProductId).collect(Collectors.toList());
+        Map<Integer, List<ProductImageResponse>> imagesByProduct = productImageRepository.findViewsByProductIds(ids).stream()
+                .collect(Collectors.groupingBy(ProductImageView::getProductId, Collectors.mapping(img -> {
+                    ProductImageResponse ir = new ProductImageResponse();
+                    ir.setImageId(img.getImageId());
+                    ir.setImageUrl(img.getImageUrl());
+                    ir.setAltText(img.getAltText());
+                    ir.setIsPrimary(img.getIsPrimary());
+                    return ir;
+                }, Collectors.toList())));
+        for (ProductResponse r : responses) r.setImages(imagesByProduct.getOrDefault(r.getProductId(), new java.util.ArrayList<>()));
+        return responses;
+    }
+
+    private ProductResponse toScalarResponse(Product p) {
         ProductResponse r = new ProductResponse();
         r.setProductId(p.getProductId());
         r.setCategoryId(p.getCategory() == null ? null : p.getCategory().getCategoryId());
@@ -236,18 +560,6 @@ public class ProductService {
         r.setSalesCount(p.getSalesCount());
         r.setCreatedAt(p.getCreatedAt());
         r.setUpdatedAt(p.getUpdatedAt());
-
-        List<ProductImage> images = productImageRepository.findByProductProductIdOrderBySortOrderAsc(p.getProductId());
-        List<ProductImageResponse> imgs = images.stream().map(img -> {
-            ProductImageResponse ir = new ProductImageResponse();
-            ir.setImageId(img.getImageId());
-            ir.setImageUrl(img.getImageUrl());
-            ir.setAltText(img.getAltText());
-            ir.setIsPrimary(img.getIsPrimary());
-            return ir;
-        }).collect(Collectors.toList());
-        r.setImages(imgs);
-
         return r;
     }
 }
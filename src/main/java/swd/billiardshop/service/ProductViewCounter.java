@@ -0,0 +1,74 @@
+package swd.billiardshop.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind counter for product page views.
+ * Requests only bump a striped LongAdder; a scheduled flusher writes the accumulated deltas
+ * to products.view_count in one JDBC batch, so hot products never contend on a row lock.
+ * Adders are never reset: the flusher remembers what it already wrote, so no increment is lost.
+ */
+@Slf4j
+@Component
+public class ProductViewCounter {
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductSearchIndex productSearchIndex;
+
+    private final ConcurrentHashMap<Integer, LongAdder> views = new ConcurrentHashMap<>();
+    // productId -> total already written to the database; only touched by the (synchronized) flusher
+    private final Map<Integer, Long> flushed = new HashMap<>();
+
+    public ProductViewCounter(JdbcTemplate jdbcTemplate,
+                              ProductCatalogCache productCatalogCache,
+                              ProductSearchIndex productSearchIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productCatalogCache = productCatalogCache;
+        this.productSearchIndex = productSearchIndex;
+    }
+
+    public void increment(Integer productId) {
+        if (productId == null) return;
+        views.computeIfAbsent(productId, id -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.views.flush-interval-ms:30000}")
+    public synchronized void flush() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder> e : views.entrySet()) {
+            long total = e.getValue().sum();
+            long delta = total - flushed.getOrDefault(e.getKey(), 0L);
+            if (delta > 0) deltas.put(e.getKey(), delta);
+        }
+        if (deltas.isEmpty()) return;
+
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        for (Map.Entry<Integer, Long> e : deltas.entrySet()) args.add(new Object[]{e.getValue(), e.getKey()});
+        try {
+            jdbcTemplate.batchUpdate("UPDATE products SET view_count = COALESCE(view_count, 0) + ? WHERE product_id = ?", args);
+        } catch (Exception e) {
+            // keep the deltas pending, the next flush retries them
+            log.warn("Flushing {} product view deltas failed", deltas.size(), e);
+            return;
+        }
+        deltas.forEach((id, delta) -> flushed.merge(id, delta, Long::sum));
+        productCatalogCache.addViews(deltas);
+        productSearchIndex.addViews(deltas);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
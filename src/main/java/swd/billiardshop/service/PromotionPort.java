@@ -0,0 +1,27 @@
+package swd.billiardshop.service;
+
+import swd.billiardshop.dto.response.PromotionResponse;
+
+import java.math.BigDecimal;
+
+/**
+ * Promotion operations OrderService depends on; implemented by PromotionService.
+ */
+public interface PromotionPort {
+    /**
+     * Look up code and check it can be applied to an order of this size; throws a PROMOTION_* AppException otherwise.
+     */
+    PromotionResponse validatePromotion(String code, Integer userId, BigDecimal subtotal, BigDecimal shippingCost);
+
+    BigDecimal calculateDiscount(PromotionResponse promotion, BigDecimal subtotal, BigDecimal shippingCost);
+
+    /**
+     * Record that the order used the promotion.
+     */
+    void usePromotion(Integer promotionId, Integer userId, Integer orderId, BigDecimal discountAmount);
+
+    /**
+     * Undo usePromotion for a cancelled order; a no-op when the order used no promotion.
+     */
+    void refundPromotionUsage(Integer orderId);
+}
@@ -0,0 +1,152 @@
+package swd.billiardshop.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.entity.Promotion;
+import swd.billiardshop.enums.PromotionApplicableTo;
+import swd.billiardshop.enums.PromotionType;
+import swd.billiardshop.repository.PromotionRepository;
+import swd.billiardshop.util.TransactionUtil;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * Promotions compiled into immutable rules indexed by upper-cased code and by id.
+ * Built with a single findAll and rebuilt periodically to pick up promotion edits; usage recorded by
+ * checkout is applied to the rule in place after commit. Checking a code during checkout is a map lookup.
+ */
+@Slf4j
+@Component
+public class PromotionRuleTable {
+    private final PromotionRepository promotionRepository;
+    private volatile Table current;
+
+    public PromotionRuleTable(PromotionRepository promotionRepository) {
+        this.promotionRepository = promotionRepository;
+    }
+
+    @Getter
+    public static class Rule {
+        private final Integer promotionId;
+        private final String code;
+        private final String name;
+        private final PromotionType type;
+        private final BigDecimal discountValue;
+        private final BigDecimal minOrderAmount;
+        private final BigDecimal maxDiscountAmount;
+        private final Integer usageLimit;
+        private final Integer perUserLimit;
+        private final PromotionApplicableTo applicableTo;
+        private final LocalDateTime startDate;
+        private final LocalDateTime endDate;
+        private final boolean active;
+        // usage seen by this node since the table was built; reset from used_count on every rebuild
+        private final AtomicInteger usedCount;
+        // (subtotal, shippingCost) -> raw discount for this rule's type, before caps
+        private final BinaryOperator<BigDecimal> formula;
+
+        private Rule(Promotion p) {
+            this.promotionId = p.getPromotionId();
+            this.code = p.getCode();
+            this.name = p.getName();
+            this.type = p.getType();
+            this.discountValue = p.getDiscountValue() == null ? BigDecimal.ZERO : p.getDiscountValue();
+            this.minOrderAmount = p.getMinOrderAmount();
+            this.maxDiscountAmount = p.getMaxDiscountAmount();
+            this.usageLimit = p.getUsageLimit();
+            this.perUserLimit = p.getPerUserLimit();
+            this.applicableTo = p.getApplicableTo();
+            this.startDate = p.getStartDate();
+            this.endDate = p.getEndDate();
+            this.active = Boolean.TRUE.equals(p.getIsActive());
+            this.usedCount = new AtomicInteger(p.getUsedCount() == null ? 0 : p.getUsedCount());
+            BigDecimal value = discountValue;
+            this.formula = switch (type) {
+                case PERCENTAGE -> (subtotal, shipping) -> subtotal.multiply(value).divide(BigDecimal.valueOf(100), 2, RoundingMode.DOWN);
+                case FIXED_AMOUNT -> (subtotal, shipping) -> value;
+                case FREE_SHIPPING -> (subtotal, shipping) -> shipping;
+            };
+        }
+
+        /**
+         * Discount for an order of this size: the type's formula, capped by maxDiscountAmount and by
+         * the amount it applies to (the subtotal, or the shipping cost for FREE_SHIPPING).
+         */
+        public BigDecimal discount(BigDecimal subtotal, BigDecimal shippingCost) {
+            BigDecimal d = formula.apply(subtotal, shippingCost);
+            if (maxDiscountAmount != null) d = d.min(maxDiscountAmount);
+            return d.min(type == PromotionType.FREE_SHIPPING ? shippingCost : subtotal).max(BigDecimal.ZERO);
+        }
+
+        public boolean isUsedUp() {
+            return usageLimit != null && usedCount.get() >= usageLimit;
+        }
+    }
+
+    private static class Table {
+        private final Map<String, Rule> byCode;
+        private final Map<Integer, Rule> byId;
+
+        private Table(Map<String, Rule> byCode, Map<Integer, Rule> byId) {
+            this.byCode = byCode;
+            this.byId = byId;
+        }
+    }
+
+    public Rule byCode(String code) {
+        return code == null ? null : table().byCode.get(code.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public Rule byId(Integer promotionId) {
+        return promotionId == null ? null : table().byId.get(promotionId);
+    }
+
+    /**
+     * Adjust the in-memory usage of a promotion once the current transaction commits.
+     */
+    public void addUsageAfterCommit(Integer promotionId, int delta) {
+        TransactionUtil.afterCommit(() -> {
+            Rule r = byId(promotionId);
+            if (r != null) r.usedCount.addAndGet(delta);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${promotions.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            current = build();
+        } catch (Exception e) {
+            log.warn("Rebuilding promotion rules failed, keeping the previous table", e);
+        }
+    }
+
+    private Table table() {
+        Table t = current;
+        if (t != null) return t;
+        synchronized (this) {
+            if (current == null) current = build();
+            return current;
+        }
+    }
+
+    private Table build() {
+        Map<String, Rule> byCode = new HashMap<>();
+        Map<Integer, Rule> byId = new HashMap<>();
+        for (Promotion p : promotionRepository.findAll()) {
+            if (p.getCode() == null || p.getType() == null) continue;
+            Rule r = new Rule(p);
+            byCode.put(p.getCode().trim().toUpperCase(Locale.ROOT), r);
+            byId.put(p.getPromotionId(), r);
+        }
+        return new Table(Map.copyOf(byCode), Map.copyOf(byId));
+    }
+}
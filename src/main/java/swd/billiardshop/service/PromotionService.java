@@ -1,11 +1,122 @@
 package swd.billiardshop.service;
 
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import swd.billiardshop.dto.response.PromotionResponse;
 import swd.billiardshop.entity.Promotion;
+import swd.billiardshop.entity.PromotionUsage;
+import swd.billiardshop.enums.PromotionApplicableTo;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+import swd.billiardshop.repository.OrderRepository;
+import swd.billiardshop.repository.PromotionRepository;
+import swd.billiardshop.repository.PromotionUsageRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 @Service
-public class PromotionService {
+@Transactional
+public class PromotionService implements PromotionPort {
+    private final PromotionRepository promotionRepository;
+    private final PromotionUsageRepository promotionUsageRepository;
+    private final UserRepository userRepository;
+    private final OrderRepository orderRepository;
+    private final PromotionRuleTable promotionRuleTable;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PromotionService(PromotionRepository promotionRepository,
+                            PromotionUsageRepository promotionUsageRepository,
+                            UserRepository userRepository,
+                            OrderRepository orderRepository,
+                            PromotionRuleTable promotionRuleTable,
+                            JdbcTemplate jdbcTemplate) {
+        this.promotionRepository = promotionRepository;
+        this.promotionUsageRepository = promotionUsageRepository;
+        this.userRepository = userRepository;
+        this.orderRepository = orderRepository;
+        this.promotionRuleTable = promotionRuleTable;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
     public List<Promotion> getAllPromotions() {
         return null;
     }
+
+    /**
+     * Checked against the in-memory PromotionRuleTable; only promotions with a per-user limit
+     * cost one count query for the user's earlier uses.
+     */
+    @Override
+    public PromotionResponse validatePromotion(String code, Integer userId, BigDecimal subtotal, BigDecimal shippingCost) {
+        PromotionRuleTable.Rule rule = promotionRuleTable.byCode(code);
+        if (rule == null) throw new AppException(ErrorCode.PROMOTION_NOT_FOUND);
+        if (!rule.isActive()) throw new AppException(ErrorCode.PROMOTION_NOT_APPLICABLE);
+
+        LocalDateTime now = LocalDateTime.now();
+        if (now.isBefore(rule.getStartDate()) || now.isAfter(rule.getEndDate())) throw new AppException(ErrorCode.PROMOTION_EXPIRED);
+        if (rule.isUsedUp()) throw new AppException(ErrorCode.PROMOTION_USED_UP);
+        // product-scoped promotions have no product list to check against yet
+        if (rule.getApplicableTo() == PromotionApplicableTo.PRODUCTS) throw new AppException(ErrorCode.PROMOTION_NOT_APPLICABLE);
+        if (rule.getMinOrderAmount() != null && subtotal.compareTo(rule.getMinOrderAmount()) < 0)
+            throw new AppException(ErrorCode.PROMOTION_MINIMUM_ORDER_NOT_MET);
+        if (rule.getPerUserLimit() != null && userLimitReached(rule, userId)) throw userLimitError();
+
+        PromotionResponse r = new PromotionResponse();
+        r.setPromotionId(rule.getPromotionId());
+        r.setCode(rule.getCode());
+        r.setTitle(rule.getName());
+        r.setType(rule.getType().name());
+        r.setDiscountValue(rule.getDiscountValue());
+        r.setMaxDiscountAmount(rule.getMaxDiscountAmount());
+        return r;
+    }
+
+    @Override
+    public BigDecimal calculateDiscount(PromotionResponse promotion, BigDecimal subtotal, BigDecimal shippingCost) {
+        PromotionRuleTable.Rule rule = promotionRuleTable.byId(promotion.getPromotionId());
+        if (rule == null) throw new AppException(ErrorCode.PROMOTION_NOT_FOUND);
+        return rule.discount(subtotal, shippingCost);
+    }
+
+    /**
+     * Claim a use with a conditional update on promotions.used_count, so concurrent redemptions can never
+     * exceed usage_limit, then record it in promotion_usage. The per-user limit is checked under a lock
+     * on the user's row, which only serializes checkouts of the same user.
+     */
+    @Override
+    public void usePromotion(Integer promotionId, Integer userId, Integer orderId, BigDecimal discountAmount) {
+        PromotionRuleTable.Rule rule = promotionRuleTable.byId(promotionId);
+        if (rule != null && rule.getPerUserLimit() != null) {
+            jdbcTemplate.queryForList("SELECT user_id FROM users WHERE user_id = ? FOR UPDATE", Integer.class, userId);
+            if (userLimitReached(rule, userId)) throw userLimitError();
+        }
+        if (promotionRepository.claimUse(promotionId) == 0) throw new AppException(ErrorCode.PROMOTION_USED_UP);
+        promotionUsageRepository.save(PromotionUsage.builder()
+                .promotion(promotionRepository.getReferenceById(promotionId))
+                .user(userRepository.getReferenceById(userId))
+                .order(orderRepository.getReferenceById(orderId))
+                .discountAmount(discountAmount)
+                .build());
+        promotionRuleTable.addUsageAfterCommit(promotionId, 1);
+    }
+
+    @Override
+    public void refundPromotionUsage(Integer orderId) {
+        for (PromotionUsage u : promotionUsageRepository.findByOrderOrderId(orderId)) {
+            promotionRepository.releaseUse(u.getPromotion().getPromotionId());
+            promotionRuleTable.addUsageAfterCommit(u.getPromotion().getPromotionId(), -1);
+            promotionUsageRepository.delete(u);
+        }
+    }
+
+    private boolean userLimitReached(PromotionRuleTable.Rule rule, Integer userId) {
+        return promotionUsageRepository.countByPromotionPromotionIdAndUserUserId(rule.getPromotionId(), userId) >= rule.getPerUserLimit();
+    }
+
+    private AppException userLimitError() {
+        return new AppException(ErrorCode.PROMOTION_USED_UP, "Bạn đã dùng hết lượt sử dụng mã giảm giá này");
+    }
 }
@@ -26,7 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Service
-public class ShipmentService {
+public class ShipmentService implements ShippingPort {
 
     @Autowired
     private GHNClientService ghnClientService;
@@ -46,6 +46,15 @@ public class ShipmentService {
     @Autowired
     private com.fasterxml.jackson.databind.ObjectMapper objectMapper;
 
+    @Autowired
+    private ProductSalesTracker productSalesTracker;
+
+    @Autowired
+    private ShippingQuoteCache shippingQuoteCache;
+
+    @Autowired
+    private ShippingFeeFallback shippingFeeFallback;
+
     public BigDecimal calculateShippingFee(String shippingMethod, swd.billiardshop.entity.Address address, List<CartItemResponse> items) {
         GHNShippingFeeRequest req = new GHNShippingFeeRequest();
         req.setFromDistrictId(ghnConfig.getShopDistrictId());
@@ -63,15 +72,28 @@ public class ShipmentService {
 
             req.setToDistrictId(mapping.getGhnDistrictId());
             req.setToWardCode(mapping.getGhnWardCode());
-            req.setWeight(calculateTotalWeight(items));
+            req.setWeight(shippingQuoteCache.bucket(calculateTotalWeight(items)));
             req.setLength(20); req.setWidth(15); req.setHeight(10);
             // Set both service_id and service_type_id for compatibility
             req.setServiceId(getServiceId(shippingMethod));
             req.setServiceTypeId(getServiceTypeId(shippingMethod));
 
-            GHNShippingFeeResponse resp = ghnClientService.calculateShippingFee(req);
-            if (resp != null && resp.getTotal() != null) {
-                return BigDecimal.valueOf(resp.getTotal());
+            ShippingQuoteCache.Key key = new ShippingQuoteCache.Key(req.getToDistrictId(), req.getToWardCode(),
+                    req.getWeight(), req.getServiceId(), req.getServiceTypeId());
+            BigDecimal fee = shippingQuoteCache.get(key, () -> {
+                GHNShippingFeeResponse resp = ghnClientService.calculateShippingFee(req);
+                if (resp == null || resp.getTotal() == null) return null;
+                BigDecimal quoted = BigDecimal.valueOf(resp.getTotal());
+                shippingFeeFallback.record(req.getToDistrictId(), req.getWeight(), req.getServiceTypeId(), quoted);
+                return quoted;
+            });
+            if (fee != null) return fee;
+
+            // GHN is down, slow (circuit open) or refused the quote: price from the last known quotes
+            BigDecimal fallback = shippingFeeFallback.lookup(req.getToDistrictId(), req.getWeight(), req.getServiceTypeId());
+            if (fallback != null) {
+                log.info("Using fallback shipping fee {} for district {} (GHN circuit {})", fallback, req.getToDistrictId(), ghnClientService.getCircuitState());
+                return fallback;
             }
         } catch (AppException e) {
             // Re-throw AppException để caller có thể handle (ví dụ: preview sẽ catch và return 0)
@@ -83,6 +105,10 @@ public class ShipmentService {
         return BigDecimal.ZERO;
     }
 
+    public java.util.Map<String, Object> getGhnCircuitStats() {
+        return ghnClientService.getCircuitStats();
+    }
+
     public String getEstimatedDelivery(String shippingMethod) {
         return ghnClientService != null ? switch (shippingMethod.toLowerCase()) {
             case "ghn_express" -> "1-2 ngày làm việc";
@@ -287,6 +313,15 @@ public class ShipmentService {
                 .orElse(null);
     }
 
+    public java.util.Map<Integer, ShipmentResponse> getShipmentsByOrderIds(java.util.Collection<Integer> orderIds) {
+        java.util.Map<Integer, ShipmentResponse> byOrder = new java.util.HashMap<>();
+        if (orderIds.isEmpty()) return byOrder;
+        for (Shipment s : shipmentRepository.findByOrderOrderIdIn(orderIds)) {
+            byOrder.put(s.getOrder().getOrderId(), buildShipmentResponse(s));
+        }
+        return byOrder;
+    }
+
     public ShipmentResponse trackShipment(String trackingNumber) {
         return shipmentRepository.findByTrackingNumber(trackingNumber)
                 .map(this::buildShipmentResponse)
@@ -343,6 +378,11 @@ public class ShipmentService {
             // Update shipment status based on GHN status
             ShipmentStatus newStatus = mapGHNStatusToShipmentStatus(orderData.getStatus());
             if (newStatus != null) {
+                // a delivery that comes back no longer counts as sold; cancelled orders were already reversed
+                if (newStatus == ShipmentStatus.RETURNED && shipment.getStatus() != ShipmentStatus.RETURNED
+                        && shipment.getOrder() != null && shipment.getOrder().getStatus() != swd.billiardshop.enums.OrderStatus.CANCELLED) {
+                    productSalesTracker.record(ProductSalesTracker.quantities(orderItemRepository.findByOrder(shipment.getOrder()), -1));
+                }
                 shipment.setStatus(newStatus);
             }
 
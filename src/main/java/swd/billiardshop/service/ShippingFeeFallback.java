@@ -0,0 +1,78 @@
+package swd.billiardshop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Local price table used when GHN cannot quote: the last fee GHN returned per destination district,
+ * weight band and service type. Every successful quote updates it (memory and the
+ * shipping_quote_history table), so it survives restarts and follows GHN's price changes.
+ */
+@Slf4j
+@Component
+public class ShippingFeeFallback {
+    private record Key(Integer districtId, Integer serviceTypeId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentHashMap<Key, NavigableMap<Integer, BigDecimal>> bands = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public ShippingFeeFallback(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void record(Integer districtId, int weightBand, Integer serviceTypeId, BigDecimal fee) {
+        if (districtId == null || serviceTypeId == null || fee == null) return;
+        bandsOf(districtId, serviceTypeId).put(weightBand, fee);
+        try {
+            jdbcTemplate.update("INSERT INTO shipping_quote_history (district_id, weight_band, service_type_id, fee, quoted_at) VALUES (?, ?, ?, ?, ?) "
+                            + "ON DUPLICATE KEY UPDATE fee = VALUES(fee), quoted_at = VALUES(quoted_at)",
+                    districtId, weightBand, serviceTypeId, fee, LocalDateTime.now());
+        } catch (Exception e) {
+            log.warn("Saving shipping quote history for district {} failed", districtId, e);
+        }
+    }
+
+    /**
+     * Fee for the band, else the nearest heavier band, else the nearest lighter one; null when the
+     * district has never been quoted for this service.
+     */
+    public BigDecimal lookup(Integer districtId, int weightBand, Integer serviceTypeId) {
+        if (districtId == null || serviceTypeId == null) return null;
+        load();
+        NavigableMap<Integer, BigDecimal> known = bands.get(new Key(districtId, serviceTypeId));
+        if (known == null || known.isEmpty()) return null;
+        Map.Entry<Integer, BigDecimal> e = known.ceilingEntry(weightBand);
+        if (e == null) e = known.floorEntry(weightBand);
+        return e.getValue();
+    }
+
+    private NavigableMap<Integer, BigDecimal> bandsOf(Integer districtId, Integer serviceTypeId) {
+        return bands.computeIfAbsent(new Key(districtId, serviceTypeId), k -> new ConcurrentSkipListMap<>());
+    }
+
+    // first lookup reads the stored history; quotes recorded since startup are newer and win
+    private void load() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            try {
+                jdbcTemplate.query("SELECT district_id, weight_band, service_type_id, fee FROM shipping_quote_history", rs -> {
+                    bandsOf(rs.getInt(1), rs.getInt(3)).putIfAbsent(rs.getInt(2), rs.getBigDecimal(4));
+                });
+                loaded = true;
+            } catch (Exception e) {
+                log.warn("Loading shipping quote history failed, will retry on the next fallback quote", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package swd.billiardshop.service;
+
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.ShipmentResponse;
+import swd.billiardshop.entity.Address;
+import swd.billiardshop.entity.Order;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shipping operations OrderService depends on; implemented by ShipmentService.
+ */
+public interface ShippingPort {
+    /**
+     * Fee for sending the items to address; throws AppException when the address cannot be priced.
+     */
+    BigDecimal calculateShippingFee(String shippingMethod, Address address, List<CartItemResponse> items);
+
+    String getEstimatedDelivery(String shippingMethod);
+
+    ShipmentResponse createShipment(Order order);
+
+    void cancelShipment(Integer orderId);
+
+    /**
+     * The order's shipment, or null when none was created.
+     */
+    ShipmentResponse getShipmentByOrderId(Integer orderId);
+
+    /**
+     * Shipments of the given orders keyed by order id, loaded with one query; orders without one are absent.
+     */
+    Map<Integer, ShipmentResponse> getShipmentsByOrderIds(Collection<Integer> orderIds);
+}
@@ -0,0 +1,122 @@
+package swd.billiardshop.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache of GHN shipping fee quotes with a TTL, keyed by destination, weight bucket and service.
+ * Concurrent misses for the same key share one GHN call. Weights are rounded up to the bucket size
+ * before quoting, so every order in a bucket is charged the quote for the bucket's upper weight.
+ */
+@Component
+public class ShippingQuoteCache {
+    public record Key(Integer toDistrictId, String toWardCode, int weightBucket, Integer serviceId, Integer serviceTypeId) {
+    }
+
+    private record Entry(BigDecimal fee, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final int bucketGrams;
+    private final LinkedHashMap<Key, Entry> quotes = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<Key, CompletableFuture<BigDecimal>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ShippingQuoteCache(@Value("${shipping.quote-cache.max-size:5000}") int maxSize,
+                              @Value("${shipping.quote-cache.ttl-ms:600000}") long ttlMillis,
+                              @Value("${shipping.quote-cache.weight-bucket-grams:500}") int bucketGrams) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.bucketGrams = bucketGrams;
+    }
+
+    /**
+     * Weight rounded up to the next bucket boundary (at least one bucket); quote and key use this value.
+     */
+    public int bucket(int weightGrams) {
+        return Math.max(1, (weightGrams + bucketGrams - 1) / bucketGrams) * bucketGrams;
+    }
+
+    /**
+     * The cached fee for key, or the loader's result. A null result (failed quote) is returned but not cached.
+     */
+    public BigDecimal get(Key key, Supplier<BigDecimal> loader) {
+        BigDecimal cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        CompletableFuture<BigDecimal> mine = new CompletableFuture<>();
+        CompletableFuture<BigDecimal> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            collapsed.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re) throw re;
+                throw e;
+            }
+        }
+        misses.increment();
+        try {
+            BigDecimal fee = loader.get();
+            if (fee != null) store(key, fee);
+            mine.complete(fee);
+            return fee;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        long h = hits.sum();
+        long mi = misses.sum();
+        long c = collapsed.sum();
+        m.put("size", quotes.size());
+        m.put("maxSize", maxSize);
+        m.put("ttlMs", ttlMillis);
+        m.put("hits", h);
+        m.put("misses", mi);
+        // requests that waited on an identical in-flight GHN call instead of making their own
+        m.put("collapsed", c);
+        m.put("evictions", evictions.sum());
+        m.put("hitRate", h + mi + c == 0 ? 0.0 : (double) (h + c) / (h + mi + c));
+        return m;
+    }
+
+    private synchronized BigDecimal lookup(Key key) {
+        Entry e = quotes.get(key);
+        if (e == null) return null;
+        if (e.expiresAt() <= System.currentTimeMillis()) {
+            quotes.remove(key);
+            return null;
+        }
+        return e.fee();
+    }
+
+    private synchronized void store(Key key, BigDecimal fee) {
+        quotes.put(key, new Entry(fee, System.currentTimeMillis() + ttlMillis));
+        while (quotes.size() > maxSize) {
+            quotes.remove(quotes.keySet().iterator().next());
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package swd.billiardshop.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out unique slugs ("base", "base-1", "base-2", ...) for categories and products.
+ * One prefix range scan on the unique slug index finds the highest taken suffix, instead of
+ * probing findBySlug once per candidate. A Session remembers what it already handed out,
+ * so a bulk import costs one query per distinct base slug.
+ */
+@Component
+public class SlugAllocator {
+    public enum Scope {
+        CATEGORIES("categories", 100),
+        PRODUCTS("products", 200);
+
+        private final String table;
+        private final int maxLength;
+
+        Scope(String table, int maxLength) {
+            this.table = table;
+            this.maxLength = maxLength;
+        }
+    }
+
+    // longest suffix we reserve room for ("-" plus up to 6 digits)
+    private static final int SUFFIX_ROOM = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SlugAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public String allocate(Scope scope, String base) {
+        return session(scope).next(base);
+    }
+
+    public Session session(Scope scope) {
+        return new Session(scope);
+    }
+
+    public class Session {
+        private final Scope scope;
+        // base -> highest numeric suffix taken so far, the bare base counts as taken once it is present
+        private final Map<String, Integer> highestSuffix = new HashMap<>();
+
+        private Session(Scope scope) {
+            this.scope = scope;
+        }
+
+        public String next(String base) {
+            if (base == null || base.isEmpty()) throw new AppException(ErrorCode.INVALID_REQUEST, "Slug cannot be empty");
+            if (base.length() > scope.maxLength - SUFFIX_ROOM) base = base.substring(0, scope.maxLength - SUFFIX_ROOM);
+            Integer highest = highestSuffix.get(base);
+            if (highest == null) {
+                int[] taken = scan(base);
+                highest = taken[1];
+                if (taken[0] == 0) {
+                    highestSuffix.put(base, highest);
+                    return base;
+                }
+            }
+            highestSuffix.put(base, highest + 1);
+            return base + "-" + (highest + 1);
+        }
+
+        /**
+         * {1 if the bare base is taken else 0, highest numeric suffix in use or 0}.
+         */
+        private int[] scan(String base) {
+            Pattern numbered = Pattern.compile(Pattern.quote(base) + "-(\\d{1,6})");
+            String like = base.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "-%";
+            boolean baseTaken = false;
+            int max = 0;
+            for (String slug : jdbcTemplate.queryForList(
+                    "SELECT slug FROM " + scope.table + " WHERE slug = ? OR slug LIKE ?", String.class, base, like)) {
+                if (slug.equals(base)) {
+                    baseTaken = true;
+                    continue;
+                }
+                Matcher m = numbered.matcher(slug);
+                if (m.matches()) max = Math.max(max, Integer.parseInt(m.group(1)));
+            }
+            return new int[]{baseTaken ? 1 : 0, max};
+        }
+    }
+}
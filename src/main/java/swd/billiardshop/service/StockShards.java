@@ -0,0 +1,191 @@
+package swd.billiardshop.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded stock for hot products: the stock of a sharded product lives in N product_stock_shards rows
+ * and checkouts decrement a random shard, so concurrent buyers lock different rows instead of queueing
+ * on products.stock_quantity. products.stock_quantity is kept as the reconciled sum
+ * (see InventoryLogService.reconcileShardedStock). Products without shard rows are not affected.
+ * Callers run inside a transaction.
+ */
+@Component
+public class StockShards {
+    public static final int MAX_SHARDS = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockShards(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Set<Integer> shardedAmong(Collection<Integer> productIds) {
+        if (productIds.isEmpty()) return Set.of();
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT DISTINCT product_id FROM product_stock_shards WHERE product_id IN ("
+                + placeholders(productIds.size()) + ")", Integer.class, productIds.toArray()));
+    }
+
+    /**
+     * Take quantity from one shard, trying a random shard that held enough at the last commit and then
+     * the other such shards in shard order; when no single shard holds enough, take it across shards
+     * under a lock on all of them. Candidates come from a plain (non-locking) read, so a guarded UPDATE
+     * rarely misses and rarely leaves a lock on a shard it could not use. Two checkouts can still lock
+     * shards in opposite order; the database then aborts one of them and OrderService retries it.
+     * Returns false, taking nothing, when sharding was turned off since the caller checked; the stock is
+     * then back in products.stock_quantity.
+     */
+    public boolean take(Integer productId, int quantity) {
+        List<Integer> candidates = jdbcTemplate.queryForList(
+                "SELECT shard_no FROM product_stock_shards WHERE product_id = ? AND quantity >= ? ORDER BY shard_no",
+                Integer.class, productId, quantity);
+        if (!candidates.isEmpty()) {
+            int first = ThreadLocalRandom.current().nextInt(candidates.size());
+            if (takeFrom(productId, candidates.get(first), quantity)) return true;
+            for (int i = 0; i < candidates.size(); i++) {
+                if (i != first && takeFrom(productId, candidates.get(i), quantity)) return true;
+            }
+        }
+
+        List<int[]> rows = lockAllSettled(productId);
+        if (rows.isEmpty()) return false;
+        int total = rows.stream().mapToInt(r -> r[1]).sum();
+        if (total < quantity)
+            throw new AppException(ErrorCode.INSUFFICIENT_STOCK, "Sản phẩm " + productId + " không đủ hàng trong kho");
+        int left = quantity;
+        List<Object[]> args = new ArrayList<>();
+        for (int[] r : rows) {
+            if (left == 0) break;
+            int part = Math.min(left, r[1]);
+            if (part == 0) continue;
+            args.add(new Object[]{part, productId, r[0]});
+            left -= part;
+        }
+        jdbcTemplate.batchUpdate("UPDATE product_stock_shards SET quantity = quantity - ? WHERE product_id = ? AND shard_no = ?", args);
+        return true;
+    }
+
+    /**
+     * Return quantity to a random shard; only the total matters. Like take, returns false when the
+     * product is no longer sharded.
+     */
+    public boolean put(Integer productId, int quantity) {
+        List<Integer> shards = jdbcTemplate.queryForList("SELECT shard_no FROM product_stock_shards WHERE product_id = ?", Integer.class, productId);
+        if (!shards.isEmpty() && addTo(productId, shards.get(ThreadLocalRandom.current().nextInt(shards.size())), quantity)) return true;
+        // resharded since the read: add to a current shard under the lock on all of them
+        List<int[]> rows = lockAllSettled(productId);
+        return !rows.isEmpty() && addTo(productId, rows.get(0)[0], quantity);
+    }
+
+    /**
+     * Live stock of the sharded products among productIds; products that are not sharded are absent.
+     */
+    public Map<Integer, Integer> totals(Collection<Integer> productIds) {
+        Map<Integer, Integer> totals = new HashMap<>();
+        if (productIds.isEmpty()) return totals;
+        jdbcTemplate.query("SELECT product_id, SUM(quantity) FROM product_stock_shards WHERE product_id IN (" + placeholders(productIds.size())
+                + ") GROUP BY product_id", rs -> {
+            totals.put(rs.getInt(1), rs.getInt(2));
+        }, productIds.toArray());
+        return totals;
+    }
+
+    /**
+     * Spread the product's whole stock evenly over shards rows, replacing any existing shards; shards of
+     * 1 or less turns sharding off and leaves the total in products.stock_quantity. The total (shard sum,
+     * or products.stock_quantity when not sharded) is read after the product row and its shards are
+     * locked, so no concurrent take or put can commit in between and be lost. Returns the total.
+     */
+    public int split(Integer productId, int shards) {
+        if (shards < 0 || shards > MAX_SHARDS)
+            throw new AppException(ErrorCode.INVALID_REQUEST, "Số shard phải từ 0 đến " + MAX_SHARDS);
+        List<Integer> stock = jdbcTemplate.queryForList("SELECT stock_quantity FROM products WHERE product_id = ? FOR UPDATE", Integer.class, productId);
+        if (stock.isEmpty()) throw new AppException(ErrorCode.NOT_FOUND, "Product not found");
+        List<int[]> rows = lockAll(productId);
+        int total = rows.isEmpty()
+                ? (stock.get(0) == null ? 0 : stock.get(0))
+                : rows.stream().mapToInt(r -> r[1]).sum();
+        write(productId, total, shards);
+        return total;
+    }
+
+    /**
+     * Set a new total for a sharded product, keeping its shard count; a no-op for other products.
+     */
+    public void reset(Integer productId, int total) {
+        List<int[]> rows = lockAll(productId);
+        if (!rows.isEmpty()) write(productId, total, rows.size());
+    }
+
+    /**
+     * Copy the shard sum of every sharded product whose products.stock_quantity differs into that column,
+     * returning the ids it found out of date. The sum is computed by the UPDATE itself and products whose
+     * shards are gone by then are skipped, so a split, reset or checkout committing between the two
+     * statements is never overwritten with an older sum.
+     */
+    public List<Integer> reconcile() {
+        List<Integer> stale = jdbcTemplate.queryForList("SELECT p.product_id FROM products p "
+                + "JOIN (SELECT product_id, SUM(quantity) AS total FROM product_stock_shards GROUP BY product_id) s ON s.product_id = p.product_id "
+                + "WHERE p.stock_quantity IS NULL OR p.stock_quantity <> s.total ORDER BY p.product_id", Integer.class);
+        if (stale.isEmpty()) return stale;
+        // product rows first, as split and reset lock them: a reshard in progress finishes before the sums are read
+        jdbcTemplate.queryForList("SELECT product_id FROM products WHERE product_id IN (" + placeholders(stale.size())
+                + ") ORDER BY product_id FOR UPDATE", Integer.class, stale.toArray());
+        jdbcTemplate.update("UPDATE products SET stock_quantity = "
+                + "(SELECT SUM(s.quantity) FROM product_stock_shards s WHERE s.product_id = products.product_id) "
+                + "WHERE product_id IN (" + placeholders(stale.size()) + ") "
+                + "AND EXISTS (SELECT 1 FROM product_stock_shards s WHERE s.product_id = products.product_id)", stale.toArray());
+        return stale;
+    }
+
+    // callers hold the locks on the product's shard rows
+    private void write(Integer productId, int total, int shards) {
+        jdbcTemplate.update("DELETE FROM product_stock_shards WHERE product_id = ?", productId);
+        jdbcTemplate.update("UPDATE products SET stock_quantity = ? WHERE product_id = ?", total, productId);
+        if (shards <= 1) return;
+        List<Object[]> rows = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) rows.add(new Object[]{productId, i, total / shards + (i < total % shards ? 1 : 0)});
+        jdbcTemplate.batchUpdate("INSERT INTO product_stock_shards (product_id, shard_no, quantity) VALUES (?, ?, ?)", rows);
+    }
+
+    private boolean addTo(Integer productId, int shard, int quantity) {
+        return jdbcTemplate.update("UPDATE product_stock_shards SET quantity = quantity + ? WHERE product_id = ? AND shard_no = ?",
+                quantity, productId, shard) == 1;
+    }
+
+    private boolean takeFrom(Integer productId, int shard, int quantity) {
+        return jdbcTemplate.update("UPDATE product_stock_shards SET quantity = quantity - ? WHERE product_id = ? AND shard_no = ? AND quantity >= ?",
+                quantity, productId, shard, quantity) == 1;
+    }
+
+    // [shardNo, quantity] rows, locked
+    private List<int[]> lockAll(Integer productId) {
+        return jdbcTemplate.query("SELECT shard_no, quantity FROM product_stock_shards WHERE product_id = ? ORDER BY shard_no FOR UPDATE",
+                (rs, i) -> new int[]{rs.getInt(1), rs.getInt(2)}, productId);
+    }
+
+    // lockAll, but when no shard rows show up, wait out a reshard holding the product row and look again;
+    // empty only when the product is no longer sharded
+    private List<int[]> lockAllSettled(Integer productId) {
+        List<int[]> rows = lockAll(productId);
+        if (!rows.isEmpty()) return rows;
+        jdbcTemplate.queryForList("SELECT product_id FROM products WHERE product_id = ? FOR UPDATE", Integer.class, productId);
+        return lockAll(productId);
+    }
+
+    private static String placeholders(int n) {
+        return String.join(", ", Collections.nCopies(n, "?"));
+    }
+}
@@ -30,6 +30,8 @@ import java.util.stream.Collectors;
 import swd.billiardshop.enums.Status;
 import org.springframework.data.jpa.domain.Specification;
 import swd.billiardshop.repository.UserSpecifications;
+import swd.billiardshop.repository.KeysetSpecifications;
+import swd.billiardshop.util.CursorUtil;
 import swd.billiardshop.enums.Role;
 import swd.billiardshop.enums.Status;
 
@@ -189,6 +191,40 @@ public class UserService {
         return userRepository.findAll(spec, pageable).map(userMapper::toUserResponse);
     }
 
+    /**
+     * Keyset variant of listUsersWithFilters (createdAt desc, userId desc) without OFFSET or COUNT.
+     */
+    public swd.billiardshop.dto.response.CursorPageResponse<UserResponse> listUsersWithFiltersByCursor(
+            String q,
+            Role role,
+            Status status,
+            LocalDateTime createdFrom,
+            LocalDateTime createdTo,
+            String cursor,
+            int size) {
+        if (size <= 0 || size > 100) throw new AppException(ErrorCode.INVALID_REQUEST, "size must be between 1 and 100");
+        Specification<User> spec = UserSpecifications.searchByKeyword(q)
+                .and(UserSpecifications.hasRole(role))
+                .and(UserSpecifications.hasStatus(status))
+                .and(UserSpecifications.createdBetween(createdFrom, createdTo));
+        CursorUtil.Cursor c = CursorUtil.decode(cursor, "createdAt");
+        if (c != null) {
+            LocalDateTime after = c.parseValue(LocalDateTime::parse);
+            spec = spec.and(KeysetSpecifications.after("createdAt", after, "userId", c.getId(), false));
+        }
+        var sort = org.springframework.data.domain.Sort.by(org.springframework.data.domain.Sort.Direction.DESC, "createdAt", "userId");
+        List<User> rows = userRepository.findBy(spec, query -> query.sortBy(sort).limit(size + 1).all());
+        boolean hasNext = rows.size() > size;
+        if (hasNext) rows = rows.subList(0, size);
+        String next = null;
+        if (hasNext) {
+            User last = rows.get(rows.size() - 1);
+            next = CursorUtil.encode("createdAt", last.getCreatedAt(), last.getUserId());
+        }
+        return new swd.billiardshop.dto.response.CursorPageResponse<>(
+                rows.stream().map(userMapper::toUserResponse).collect(Collectors.toList()), next, hasNext);
+    }
+
     @Transactional
     public void banUser(Integer userId, String reason) {
         User u = getUserEntityById(userId);
@@ -0,0 +1,61 @@
+package swd.billiardshop.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Opaque continuation tokens for keyset (seek) pagination.
+ * A token carries the sort it was issued for plus the sort value and id of the last row returned,
+ * so the next page can start with "WHERE (value, id) < (:value, :id)" instead of an OFFSET.
+ */
+public class CursorUtil {
+    private static final String SEPARATOR = "\u001F";
+
+    @Data
+    @AllArgsConstructor
+    public static class Cursor {
+        private String value; // null when the last row had no sort value
+        private Integer id;
+
+        /**
+         * The sort value read with parse; a value the token could not have been issued with is an invalid cursor.
+         */
+        public <V> V parseValue(Function<String, V> parse) {
+            if (value == null) return null;
+            try {
+                return parse.apply(value);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                throw new AppException(ErrorCode.INVALID_REQUEST, "Invalid cursor");
+            }
+        }
+    }
+
+    public static String encode(String sortKey, Object value, Integer id) {
+        String raw = sortKey + SEPARATOR + (value == null ? "" : value.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token issued for sortKey; returns null for a missing token (first page).
+     */
+    public static Cursor decode(String token, String sortKey) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != 3 || !parts[0].equals(sortKey)) {
+                throw new AppException(ErrorCode.INVALID_REQUEST, "Cursor does not match the requested sort");
+            }
+            return new Cursor(parts[1].isEmpty() ? null : parts[1], Integer.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new AppException(ErrorCode.INVALID_REQUEST, "Invalid cursor");
+        }
+    }
+}
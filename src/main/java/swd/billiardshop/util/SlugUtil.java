@@ -7,6 +7,7 @@ import java.util.regex.Pattern;
 public class SlugUtil {
     private static final Pattern NONLATIN = Pattern.compile("[^\\w-]");
     private static final Pattern WHITESPACE = Pattern.compile("[\\s]");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
 
     public static String toSlug(String input) {
         if (input == null) return null;
@@ -17,4 +18,13 @@ public class SlugUtil {
         if (slug.length() > 100) slug = slug.substring(0, 100);
         return slug;
     }
+
+    /**
+     * Strip Vietnamese diacritics ("Cơ bida Đài Loan" -> "Co bida Dai Loan") using the same NFD decomposition as toSlug.
+     */
+    public static String foldDiacritics(String input) {
+        if (input == null) return null;
+        String normalized = Normalizer.normalize(input, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(normalized).replaceAll("").replace('đ', 'd').replace('Đ', 'D');
+    }
 }
@@ -0,0 +1,7 @@
+-- Case-insensitive uniqueness of category names among siblings, including root categories
+-- (a plain UNIQUE (parent_id, name) lets several roots share a name because NULLs never collide).
+-- Requires MySQL 8.0.13+ for functional key parts; the expressions must match
+-- CategoryRepository.countByParentIdAndNameIgnoreCase so the lookup is an index probe.
+
+CREATE UNIQUE INDEX uq_categories_parent_lower_name
+  ON categories ((COALESCE(parent_id, 0)), (LOWER(name)));
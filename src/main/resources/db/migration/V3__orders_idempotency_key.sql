@@ -0,0 +1,6 @@
+-- Checkout idempotency: a retried POST /orders with the same Idempotency-Key header returns the
+-- order created by the first attempt. NULL keys (clients that send no header) never collide.
+
+ALTER TABLE orders ADD COLUMN idempotency_key VARCHAR(64) NULL;
+
+CREATE UNIQUE INDEX uq_orders_user_idempotency_key ON orders (user_id, idempotency_key);
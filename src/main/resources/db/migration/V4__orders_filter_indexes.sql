@@ -0,0 +1,11 @@
+-- Composite indexes behind the filtered order listings (OrderSpecifications), newest first:
+--   a user's history, optionally by status      -> (user_id, status, created_at)
+--   admin listing by status / payment status     -> (status, created_at), (payment_status, created_at)
+--   admin listing by date range only             -> (created_at)
+-- order_items.order_id and shipments.order_id already carry the foreign-key indexes used by
+-- the per-page IN lookups.
+
+CREATE INDEX idx_orders_user_status_created ON orders (user_id, status, created_at);
+CREATE INDEX idx_orders_status_created ON orders (status, created_at);
+CREATE INDEX idx_orders_payment_status_created ON orders (payment_status, created_at);
+CREATE INDEX idx_orders_created ON orders (created_at);
@@ -0,0 +1,11 @@
+-- Sharded stock for hot products (StockShards): a product with rows here is sold from these
+-- sub-counters, and products.stock_quantity holds their periodically reconciled sum.
+
+CREATE TABLE product_stock_shards (
+  product_id INT NOT NULL,
+  shard_no INT NOT NULL,
+  quantity INT NOT NULL,
+  PRIMARY KEY (product_id, shard_no),
+  CONSTRAINT fk_product_stock_shards_product FOREIGN KEY (product_id) REFERENCES products (product_id) ON DELETE CASCADE,
+  CONSTRAINT chk_product_stock_shards_quantity CHECK (quantity >= 0)
+);
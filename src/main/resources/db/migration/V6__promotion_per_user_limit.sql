@@ -0,0 +1,5 @@
+-- Per-user redemption cap for promotions, counted in promotion_usage (PromotionService.usePromotion).
+
+ALTER TABLE promotions ADD COLUMN per_user_limit INT NULL;
+
+CREATE INDEX idx_promotion_usage_promotion_user ON promotion_usage (promotion_id, user_id);
@@ -0,0 +1,11 @@
+-- Last known GHN fee per destination district, weight band (grams, rounded up to the quote cache
+-- bucket) and service type. ShippingFeeFallback quotes from it while the GHN circuit breaker is open.
+
+CREATE TABLE shipping_quote_history (
+  district_id INT NOT NULL,
+  weight_band INT NOT NULL,
+  service_type_id INT NOT NULL,
+  fee DECIMAL(15,2) NOT NULL,
+  quoted_at DATETIME(6) NOT NULL,
+  PRIMARY KEY (district_id, weight_band, service_type_id)
+);
@@ -0,0 +1,78 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    // window 10s, min 2 calls, 50% failure or slow rate, slow at 100ms, open 50ms, 1 probe
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("test", 10_000, 10, 2, 50, 50, 100, 50, 1);
+    }
+
+    private void trip(CircuitBreaker cb) {
+        for (int i = 0; i < 2; i++) cb.onResult(cb.tryAcquire(), 1, false);
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+    }
+
+    @Test
+    void opensOnFailureRateAndRejectsWhileOpen() {
+        CircuitBreaker cb = breaker();
+        trip(cb);
+        assertNull(cb.tryAcquire());
+        assertEquals(1L, cb.stats().get("rejected"));
+    }
+
+    @Test
+    void opensOnSlowCallRate() {
+        CircuitBreaker cb = breaker();
+        cb.onResult(cb.tryAcquire(), 150, true);
+        cb.onResult(cb.tryAcquire(), 150, true);
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+    }
+
+    @Test
+    void closedCallFinishingWhileHalfOpenIsNotTakenForTheProbe() throws Exception {
+        CircuitBreaker cb = breaker();
+        CircuitBreaker.Permit straggler = cb.tryAcquire();
+        trip(cb);
+        Thread.sleep(60);
+
+        CircuitBreaker.Permit probe = cb.tryAcquire();
+        assertNotNull(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, probe.state());
+
+        // a success from before the breaker opened must neither close it nor free the probe slot
+        cb.onResult(straggler, 1, true);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, cb.state());
+        assertNull(cb.tryAcquire());
+
+        cb.onResult(probe, 1, true);
+        assertEquals(CircuitBreaker.State.CLOSED, cb.state());
+    }
+
+    @Test
+    void staleFailureDoesNotReopenAfterRecovery() throws Exception {
+        CircuitBreaker cb = breaker();
+        CircuitBreaker.Permit straggler = cb.tryAcquire();
+        trip(cb);
+        Thread.sleep(60);
+        cb.onResult(cb.tryAcquire(), 1, true);
+        assertEquals(CircuitBreaker.State.CLOSED, cb.state());
+
+        cb.onResult(straggler, 5_000, false);
+        assertEquals(CircuitBreaker.State.CLOSED, cb.state());
+        assertEquals(0, cb.stats().get("windowCalls"));
+    }
+
+    @Test
+    void failedProbeReopens() throws Exception {
+        CircuitBreaker cb = breaker();
+        trip(cb);
+        Thread.sleep(60);
+        cb.onResult(cb.tryAcquire(), 1, false);
+        assertEquals(CircuitBreaker.State.OPEN, cb.state());
+        assertEquals(2L, cb.stats().get("timesOpened"));
+    }
+}
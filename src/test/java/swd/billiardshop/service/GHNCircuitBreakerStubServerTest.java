@@ -0,0 +1,157 @@
+package swd.billiardshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+import swd.billiardshop.configuration.GHNConfig;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.entity.Address;
+import swd.billiardshop.entity.LocationMapping;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives ShipmentService.calculateShippingFee against a local stub of the GHN fee API that can be
+ * switched between healthy, failing and slow, and checks the breaker and fallback pricing end to end.
+ */
+class GHNCircuitBreakerStubServerTest {
+    private enum Mode { OK, ERROR, SLOW }
+
+    private HttpServer server;
+    private volatile Mode mode = Mode.OK;
+    private volatile long fee = 35000;
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private GHNClientService ghn;
+    private ShipmentService shipments;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v2/shipping-order/fee", exchange -> {
+            hits.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            int status = 200;
+            String body = "{\"code\":200,\"message\":\"Success\",\"data\":{\"total\":" + fee + "}}";
+            if (mode == Mode.ERROR) {
+                status = 500;
+                body = "{\"code\":500,\"message\":\"internal error\"}";
+            } else if (mode == Mode.SLOW) {
+                try {
+                    Thread.sleep(150);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+
+        GHNConfig config = new GHNConfig();
+        config.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort());
+        config.setToken("test-token");
+        config.setShopId(1);
+        config.setShopDistrictId(1442);
+        config.setShopWardId(20101);
+
+        ghn = new GHNClientService();
+        ReflectionTestUtils.setField(ghn, "ghnConfig", config);
+        ReflectionTestUtils.setField(ghn, "restTemplate", new RestTemplate());
+        ReflectionTestUtils.setField(ghn, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(ghn, "breakerWindowMillis", 10_000L);
+        ReflectionTestUtils.setField(ghn, "breakerMinCalls", 4);
+        ReflectionTestUtils.setField(ghn, "breakerFailureRate", 50.0);
+        ReflectionTestUtils.setField(ghn, "breakerSlowRate", 50.0);
+        ReflectionTestUtils.setField(ghn, "breakerSlowCallMillis", 100L);
+        ReflectionTestUtils.setField(ghn, "breakerOpenMillis", 200L);
+        ReflectionTestUtils.setField(ghn, "breakerHalfOpenCalls", 2);
+        ghn.initCircuitBreaker();
+
+        LocationMappingService locations = mock(LocationMappingService.class);
+        when(locations.mapAddressToGHN(any())).thenReturn(LocationMapping.builder().ghnDistrictId(1454).ghnWardCode("21211").build());
+
+        shipments = new ShipmentService();
+        ReflectionTestUtils.setField(shipments, "ghnClientService", ghn);
+        ReflectionTestUtils.setField(shipments, "ghnConfig", config);
+        ReflectionTestUtils.setField(shipments, "locationMappingService", locations);
+        // ttl 0: every quote goes to GHN
+        ReflectionTestUtils.setField(shipments, "shippingQuoteCache", new ShippingQuoteCache(100, 0, 500));
+        ReflectionTestUtils.setField(shipments, "shippingFeeFallback", new ShippingFeeFallback(mock(JdbcTemplate.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private BigDecimal quote() {
+        CartItemResponse item = new CartItemResponse();
+        item.setQuantity(2);
+        return shipments.calculateShippingFee("ghn_standard", new Address(), List.of(item));
+    }
+
+    @Test
+    void failuresOpenTheBreakerAndQuotesFallBackUntilProbesRecover() throws Exception {
+        assertEquals(0, new BigDecimal("35000").compareTo(quote()));
+
+        mode = Mode.ERROR;
+        for (int i = 0; i < 3; i++) assertEquals(0, new BigDecimal("35000").compareTo(quote()));
+        assertEquals(CircuitBreaker.State.OPEN, ghn.getCircuitState());
+
+        // open: priced from the last known quote without calling GHN
+        int before = hits.get();
+        for (int i = 0; i < 10; i++) assertEquals(0, new BigDecimal("35000").compareTo(quote()));
+        assertEquals(before, hits.get());
+
+        mode = Mode.OK;
+        fee = 42000;
+        Thread.sleep(250);
+        assertEquals(0, new BigDecimal("42000").compareTo(quote()));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, ghn.getCircuitState());
+        assertEquals(0, new BigDecimal("42000").compareTo(quote()));
+        assertEquals(CircuitBreaker.State.CLOSED, ghn.getCircuitState());
+    }
+
+    @Test
+    void slowResponsesOpenTheBreaker() {
+        assertEquals(0, new BigDecimal("35000").compareTo(quote()));
+        mode = Mode.SLOW;
+        for (int i = 0; i < 3; i++) quote();
+        assertEquals(CircuitBreaker.State.OPEN, ghn.getCircuitState());
+
+        int before = hits.get();
+        assertEquals(0, new BigDecimal("35000").compareTo(quote()));
+        assertEquals(before, hits.get());
+    }
+
+    @Test
+    void failedProbeReopensTheBreaker() throws Exception {
+        assertEquals(0, new BigDecimal("35000").compareTo(quote()));
+        mode = Mode.ERROR;
+        for (int i = 0; i < 3; i++) quote();
+        assertEquals(CircuitBreaker.State.OPEN, ghn.getCircuitState());
+
+        Thread.sleep(250);
+        quote();
+        assertEquals(CircuitBreaker.State.OPEN, ghn.getCircuitState());
+        assertEquals(2L, ghn.getCircuitStats().get("timesOpened"));
+    }
+}
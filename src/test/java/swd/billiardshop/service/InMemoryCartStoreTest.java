@@ -0,0 +1,100 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.CartResponse;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.entity.User;
+import swd.billiardshop.repository.ProductRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The memory cart store must hand out the item ids JpaCartStore does, and keep them across write-backs.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class InMemoryCartStoreTest {
+
+    @Autowired
+    private JpaCartStore jpaCartStore;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Integer userId;
+    private Product cue;
+    private Product chalk;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        userId = userRepository.save(User.builder()
+                .username("cart-" + suffix)
+                .email("cart-" + suffix + "@example.com")
+                .passwordHash("x")
+                .build()).getUserId();
+        cue = newProduct("co-" + suffix);
+        chalk = newProduct("lo-" + suffix);
+    }
+
+    private InMemoryCartStore newStore() {
+        // debounce 0: persist and flushDirty write at once
+        return new InMemoryCartStore(jpaCartStore, 0, 3_600_000);
+    }
+
+    @Test
+    void itemIdsAreTheCartItemRowIds() {
+        InMemoryCartStore store = newStore();
+        store.putItem(userId, cue, 1);
+        CartResponse cart = store.putItem(userId, chalk, 2);
+
+        CartResponse stored = jpaCartStore.load(userId);
+        assertEquals(2, stored.getItems().size());
+        for (CartItemResponse line : cart.getItems()) {
+            assertEquals(CartResponses.findProduct(stored, line.getProductId()).getItemId(), line.getItemId());
+        }
+    }
+
+    @Test
+    void itemIdsSurviveWriteBacksAndReloads() {
+        InMemoryCartStore store = newStore();
+        Integer cueId = CartResponses.findProduct(store.putItem(userId, cue, 1), cue.getProductId()).getItemId();
+        Integer chalkId = CartResponses.findProduct(store.putItem(userId, chalk, 2), chalk.getProductId()).getItemId();
+        store.putItem(userId, cue, 3);
+        store.persist(userId);
+
+        store.removeItems(userId, Set.of(chalkId));
+        store.flushDirty();
+
+        CartResponse reloaded = newStore().load(userId);
+        assertEquals(1, reloaded.getItems().size());
+        CartItemResponse line = reloaded.getItems().get(0);
+        assertEquals(cueId, line.getItemId());
+        assertEquals(3, line.getQuantity());
+        assertEquals(List.of(line.getItemId()), jpaCartStore.load(userId).getItems().stream().map(CartItemResponse::getItemId).toList());
+    }
+
+    private Product newProduct(String slug) {
+        return productRepository.save(Product.builder()
+                .name("Giỏ " + slug)
+                .slug(slug)
+                .sku("CART-" + slug)
+                .price(new BigDecimal("50000"))
+                .stockQuantity(10)
+                .build());
+    }
+}
@@ -0,0 +1,229 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.entity.Order;
+import swd.billiardshop.entity.OrderItem;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.entity.Review;
+import swd.billiardshop.entity.User;
+import swd.billiardshop.enums.OrderStatus;
+import swd.billiardshop.enums.ReviewStatus;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+import swd.billiardshop.repository.OrderItemRepository;
+import swd.billiardshop.repository.OrderRepository;
+import swd.billiardshop.repository.ProductRepository;
+import swd.billiardshop.repository.ReviewRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many buyers reserving the same product at once must never take more than the stock on hand,
+ * reviews saved meanwhile do not write back a stale stock level, and an order cancelled from two
+ * places at once gives its stock back only once.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class InventoryOversellStressTest {
+    private static final int STOCK = 50;
+    private static final int BUYERS = 200;
+
+    @Autowired
+    private InventoryPort inventoryService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Product product = newProduct(STOCK);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        runConcurrently(BUYERS, i -> {
+            try {
+                inventoryService.reserveStock(100_000 + i, List.of(line(product, 1)));
+                reserved.incrementAndGet();
+            } catch (AppException e) {
+                assertEquals(ErrorCode.INSUFFICIENT_STOCK, e.getErrorCode());
+                refused.incrementAndGet();
+            }
+        });
+
+        assertEquals(STOCK, reserved.get());
+        assertEquals(BUYERS - STOCK, refused.get());
+        assertEquals(0, stockOf(product));
+        Integer sold = jdbcTemplate.queryForObject(
+                "SELECT -SUM(quantity_change) FROM inventory_logs WHERE product_id = ? AND type = 'SALE'", Integer.class, product.getProductId());
+        assertEquals(STOCK, sold);
+    }
+
+    @Test
+    void reviewsApprovedDuringCheckoutsDoNotWriteBackStaleStock() throws Exception {
+        Product product = newProduct(STOCK);
+        AtomicInteger reserved = new AtomicInteger();
+
+        runConcurrently(BUYERS, i -> {
+            if (i % 5 == 0) {
+                // reloads and saves the product while reservations decrement its stock
+                Review review = reviewRepository.save(Review.builder()
+                        .reviewableType("product")
+                        .reviewableId(product.getProductId())
+                        .rating(1 + i % 5)
+                        .status(ReviewStatus.PENDING)
+                        .build());
+                reviewService.approveReview(review.getReviewId(), ReviewStatus.APPROVED);
+                return;
+            }
+            try {
+                inventoryService.reserveStock(200_000 + i, List.of(line(product, 1)));
+                reserved.incrementAndGet();
+            } catch (AppException e) {
+                assertEquals(ErrorCode.INSUFFICIENT_STOCK, e.getErrorCode());
+            }
+        });
+
+        assertEquals(STOCK, reserved.get());
+        assertEquals(0, stockOf(product));
+        Integer sold = jdbcTemplate.queryForObject(
+                "SELECT -SUM(quantity_change) FROM inventory_logs WHERE product_id = ? AND type = 'SALE'", Integer.class, product.getProductId());
+        assertEquals(STOCK, sold);
+    }
+
+    @Test
+    void userCancelRacingTheReservationSweeperReturnsStockOnce() throws Exception {
+        Product product = newProduct(10);
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = userRepository.save(User.builder()
+                .username("buyer-" + suffix)
+                .email("buyer-" + suffix + "@example.com")
+                .passwordHash("x")
+                .build());
+        Order order = orderRepository.save(Order.builder()
+                .orderNumber("TEST-" + suffix)
+                .user(user)
+                .shippingAddress("test")
+                .subtotal(new BigDecimal("400000"))
+                .totalAmount(new BigDecimal("400000"))
+                // old enough for expireReservations to pick it up
+                .createdAt(LocalDateTime.now().minusDays(1))
+                .build());
+        orderItemRepository.save(OrderItem.builder()
+                .order(order)
+                .product(product)
+                .productName(product.getName())
+                .quantity(4)
+                .unitPrice(product.getPrice())
+                .totalPrice(product.getPrice().multiply(BigDecimal.valueOf(4)))
+                .build());
+        inventoryService.reserveStock(order.getOrderId(), List.of(line(product, 4)));
+        assertEquals(6, stockOf(product));
+
+        AtomicInteger cancelled = new AtomicInteger();
+        runConcurrently(8, i -> {
+            if (i == 0) {
+                orderService.expireReservations();
+                return;
+            }
+            try {
+                orderService.cancelOrder(user.getUserId(), order.getOrderId(), "test");
+                cancelled.incrementAndGet();
+            } catch (AppException e) {
+                assertEquals(ErrorCode.ORDER_CANNOT_CANCEL, e.getErrorCode());
+            }
+        });
+
+        assertTrue(cancelled.get() <= 1);
+        assertEquals(OrderStatus.CANCELLED, orderRepository.findById(order.getOrderId()).orElseThrow().getStatus());
+        assertEquals(10, stockOf(product));
+        Integer returned = jdbcTemplate.queryForObject(
+                "SELECT SUM(quantity_change) FROM inventory_logs WHERE reference_id = ? AND type = 'RETURN'", Integer.class, order.getOrderId());
+        assertEquals(4, returned);
+    }
+
+    private Product newProduct(int stock) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return productRepository.save(Product.builder()
+                .name("Cơ thử tải " + suffix)
+                .slug("co-thu-tai-" + suffix)
+                .sku("STRESS-" + suffix)
+                .price(new BigDecimal("100000"))
+                .stockQuantity(stock)
+                .build());
+    }
+
+    private int stockOf(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE product_id = ?", Integer.class, product.getProductId());
+    }
+
+    private static CartItemResponse line(Product product, int quantity) {
+        CartItemResponse item = new CartItemResponse();
+        item.setProductId(product.getProductId());
+        item.setQuantity(quantity);
+        item.setUnitPrice(product.getPrice());
+        return item;
+    }
+
+    interface Task {
+        void run(int i) throws Exception;
+    }
+
+    static void runConcurrently(int n, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int id = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(id);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package swd.billiardshop.service;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Timing helper for the benchmarks that run with -Dbenchmark=true: warms a task up, then runs it on
+ * the calling thread and reports latency percentiles and the bytes that thread allocated per run.
+ */
+final class LatencyHarness {
+    static final String ENABLED = "benchmark";
+
+    record Result(String name, double meanMicros, double p50Micros, double p99Micros, long bytesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%s: mean %.1f us, p50 %.1f us, p99 %.1f us, %d B/op", name, meanMicros, p50Micros, p99Micros, bytesPerOp);
+        }
+    }
+
+    private LatencyHarness() {
+    }
+
+    static Result measure(String name, int warmup, int iterations, InventoryOversellStressTest.Task task) throws Exception {
+        for (int i = 0; i < warmup; i++) task.run(i);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long[] nanos = new long[iterations];
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            task.run(warmup + i);
+            nanos[i] = System.nanoTime() - start;
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long total = 0;
+        for (long n : nanos) total += n;
+        Arrays.sort(nanos);
+        return new Result(name, total / 1e3 / iterations, nanos[iterations / 2] / 1e3,
+                nanos[Math.min(iterations - 1, (int) Math.ceil(iterations * 0.99) - 1)] / 1e3, allocated / iterations);
+    }
+}
@@ -0,0 +1,89 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 50_000;
+
+    @Test
+    void numbersFromManyThreadsAreUniqueAndCarryAValidCheckDigit() throws Exception {
+        OrderNumberGenerator generator = new OrderNumberGenerator(7);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    String previous = null;
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        String number = generator.next();
+                        assertTrue(number.matches("ORD\\d+"), number);
+                        assertTrue(luhnValid(number.substring(3)), number);
+                        // one thread sees its own numbers in increasing order
+                        if (previous != null) assertTrue(id(number) > id(previous), previous + " then " + number);
+                        previous = number;
+                        seen.add(number);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(THREADS * PER_THREAD, seen.size());
+    }
+
+    @Test
+    void nodesProduceDisjointNumbers() {
+        OrderNumberGenerator a = new OrderNumberGenerator(1);
+        OrderNumberGenerator b = new OrderNumberGenerator(2);
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(seen.add(a.next()));
+            assertTrue(seen.add(b.next()));
+        }
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTenBits() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1024));
+    }
+
+    private static long id(String number) {
+        return Long.parseLong(number.substring(3, number.length() - 1));
+    }
+
+    private static boolean luhnValid(String digits) {
+        int sum = 0;
+        boolean dbl = false;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int d = digits.charAt(i) - '0';
+            if (dbl) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+            dbl = !dbl;
+        }
+        return sum % 10 == 0;
+    }
+}
@@ -0,0 +1,194 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.dto.request.AddToCartRequest;
+import swd.billiardshop.dto.request.OrderPreviewRequest;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.dto.response.OrderPreviewResponse;
+import swd.billiardshop.entity.Address;
+import swd.billiardshop.entity.LocationMapping;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.entity.Promotion;
+import swd.billiardshop.entity.User;
+import swd.billiardshop.enums.PromotionType;
+import swd.billiardshop.repository.AddressRepository;
+import swd.billiardshop.repository.LocationMappingRepository;
+import swd.billiardshop.repository.ProductRepository;
+import swd.billiardshop.repository.PromotionRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Latency of previewOrder for a one-line cart. The benchmark only runs with -Dbenchmark=true and logs
+ * its figures: previewOrder end to end, and the shipping calls on its hot path made through the typed
+ * ports against the getClass().getMethod(...).invoke(...) dispatch OrderService used before them. GHN
+ * is unreachable in the test profile, so once its breaker opens the fee comes from the fallback table
+ * and the timings cover OrderService and the ports rather than the network. Previews with and without a
+ * promotion code are compared too; codes are checked against PromotionRuleTable, so the difference
+ * should stay small.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class OrderPreviewBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderPreviewBenchmarkTest.class);
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 5000;
+    private static final String METHOD = "ghn_standard";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ShippingPort shippingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private LocationMappingRepository locationMappingRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private PromotionRuleTable promotionRuleTable;
+
+    private User user;
+    private Address address;
+    private String promotionCode;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        user = userRepository.save(User.builder()
+                .username("preview-" + suffix)
+                .email("preview-" + suffix + "@example.com")
+                .passwordHash("x")
+                .build());
+        Product product = productRepository.save(Product.builder()
+                .name("Bàn xem trước " + suffix)
+                .slug("ban-xem-truoc-" + suffix)
+                .sku("PREVIEW-" + suffix)
+                .price(new BigDecimal("100000"))
+                .stockQuantity(100)
+                .build());
+        // names without Quận/Phường prefixes are matched as they are
+        locationMappingRepository.save(LocationMapping.builder()
+                .province("Tỉnh" + suffix).city("Thành" + suffix).district("Huyện" + suffix).ward("Xã" + suffix)
+                .ghnDistrictId(1454).ghnWardCode("21211")
+                .build());
+        address = addressRepository.save(Address.builder()
+                .user(user)
+                .recipientName("Người nhận")
+                .phone("0900000000")
+                .addressLine("1 Đường thử")
+                .province("Tỉnh" + suffix).city("Thành" + suffix).district("Huyện" + suffix).ward("Xã" + suffix)
+                .build());
+
+        AddToCartRequest add = new AddToCartRequest();
+        add.setProductId(product.getProductId());
+        add.setQuantity(2);
+        cartService.addToCart(user.getUserId(), add);
+
+        promotionCode = "PREVIEW-" + suffix;
+        promotionRepository.save(Promotion.builder()
+                .code(promotionCode)
+                .name("Xem trước " + suffix)
+                .type(PromotionType.FIXED_AMOUNT)
+                .discountValue(new BigDecimal("10000"))
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(1))
+                .build());
+        promotionRuleTable.refresh();
+    }
+
+    OrderPreviewRequest request(String promotionCode) {
+        OrderPreviewRequest request = new OrderPreviewRequest();
+        request.setAddressId(address.getAddressId());
+        request.setShippingMethod(METHOD);
+        request.setPromotionCode(promotionCode);
+        return request;
+    }
+
+    @Test
+    void previewTotalsTheCartAndTheShippingFee() {
+        OrderPreviewResponse preview = orderService.previewOrder(user.getUserId(), request(null));
+
+        assertEquals(0, new BigDecimal("200000").compareTo(preview.getSubtotal()));
+        assertEquals(0, preview.getSubtotal().add(preview.getShippingCost()).compareTo(preview.getTotalAmount()));
+    }
+
+    @Test
+    void previewWithACodeSubtractsItsDiscount() {
+        OrderPreviewResponse preview = orderService.previewOrder(user.getUserId(), request(promotionCode));
+
+        assertEquals(0, new BigDecimal("10000").compareTo(preview.getDiscountAmount()));
+        assertEquals(0, preview.getSubtotal().add(preview.getShippingCost()).subtract(preview.getDiscountAmount())
+                .compareTo(preview.getTotalAmount()));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = LatencyHarness.ENABLED, matches = "true")
+    void comparePreviewWithAndWithoutAPromotionCode() throws Exception {
+        Integer userId = user.getUserId();
+        OrderPreviewRequest plain = request(null);
+        OrderPreviewRequest withCode = request(promotionCode);
+
+        // two rounds so the second is not skewed by whichever variant warmed the JIT first
+        for (int round = 1; round <= 2; round++) {
+            LatencyHarness.Result without = LatencyHarness.measure("previewOrder without a code", WARMUP, ITERATIONS,
+                    i -> orderService.previewOrder(userId, plain));
+            LatencyHarness.Result with = LatencyHarness.measure("previewOrder with a code", WARMUP, ITERATIONS,
+                    i -> orderService.previewOrder(userId, withCode));
+            log.info("round {}: {}", round, without);
+            log.info("round {}: {}", round, with);
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = LatencyHarness.ENABLED, matches = "true")
+    void comparePreviewPortDispatch() throws Exception {
+        Integer userId = user.getUserId();
+        List<CartItemResponse> items = cartService.validateCartForCheckout(userId).getItems();
+        OrderPreviewRequest request = request(null);
+
+        LatencyHarness.Result preview = LatencyHarness.measure("previewOrder", WARMUP, ITERATIONS,
+                i -> orderService.previewOrder(userId, request));
+        LatencyHarness.Result typed = LatencyHarness.measure("shipping calls via ShippingPort", WARMUP, ITERATIONS, i -> {
+            shippingService.calculateShippingFee(METHOD, address, items);
+            shippingService.getEstimatedDelivery(METHOD);
+        });
+        LatencyHarness.Result reflective = LatencyHarness.measure("shipping calls via getMethod/invoke", WARMUP, ITERATIONS, i -> {
+            Method fee = shippingService.getClass().getMethod("calculateShippingFee", String.class, Address.class, List.class);
+            fee.invoke(shippingService, METHOD, address, items);
+            Method eta = shippingService.getClass().getMethod("getEstimatedDelivery", String.class);
+            eta.invoke(shippingService, METHOD);
+        });
+        log.info("{}", preview);
+        log.info("{}", typed);
+        log.info("{}", reflective);
+    }
+}
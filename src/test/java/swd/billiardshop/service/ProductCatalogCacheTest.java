@@ -0,0 +1,114 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+import swd.billiardshop.dto.response.ProductResponse;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogCacheTest {
+
+    private static ProductResponse product(int id, int stock) {
+        ProductResponse r = new ProductResponse();
+        r.setProductId(id);
+        r.setSlug("product-" + id);
+        r.setStockQuantity(stock);
+        return r;
+    }
+
+    @Test
+    void loadedCopyDoesNotReplaceAWriteMadeWhileItWasRead() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        long stamp = cache.stamp();
+        cache.put(product(1, 5));
+
+        assertFalse(cache.putLoaded(product(1, 10), stamp));
+        assertEquals(5, cache.get(1).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void loadedCopyIsNotCachedAfterAnEvictionDuringTheRead() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        long stamp = cache.stamp();
+        cache.evict(1);
+
+        assertFalse(cache.putLoaded(product(1, 10), stamp));
+        assertTrue(cache.get(1).isEmpty());
+        assertTrue(cache.putLoaded(product(1, 10), cache.stamp()));
+    }
+
+    @Test
+    void fullLoadKeepsNewerEntries() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        long stamp = cache.stamp();
+        cache.put(product(2, 7));
+
+        cache.loadAll(List.of(product(1, 1), product(2, 2)), stamp);
+        assertEquals(7, cache.get(2).orElseThrow().getStockQuantity());
+        assertEquals(2, cache.getAll().orElseThrow().size());
+    }
+
+    @Test
+    void fullLoadIsIncompleteWhenAProductWasEvictedDuringTheRead() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        long stamp = cache.stamp();
+        cache.evict(2);
+
+        cache.loadAll(List.of(product(1, 1), product(2, 2)), stamp);
+        assertTrue(cache.getAll().isEmpty());
+        assertTrue(cache.get(2).isEmpty());
+    }
+
+    @Test
+    void viewDeltasInvalidateAnInFlightLoad() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        long stamp = cache.stamp();
+        cache.addViews(Map.of(1, 3L));
+
+        assertFalse(cache.putLoaded(product(1, 1), stamp));
+    }
+
+    @Test
+    void handedOutEntriesAreCopies() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        ProductResponse put = product(1, 5);
+        put.setViewCount(10);
+        cache.put(put);
+        put.setStockQuantity(0);
+
+        ProductResponse read = cache.get(1).orElseThrow();
+        assertEquals(5, read.getStockQuantity());
+        read.setStockQuantity(99);
+        assertEquals(5, cache.getBySlug("product-1").orElseThrow().getStockQuantity());
+
+        cache.addViews(Map.of(1, 3L));
+        assertEquals(10, read.getViewCount());
+        assertEquals(13, cache.get(1).orElseThrow().getViewCount());
+    }
+
+    @Test
+    void overflowingTheCacheMakesItIncomplete() {
+        ProductCatalogCache cache = new ProductCatalogCache(2);
+        cache.loadAll(List.of(product(1, 1), product(2, 2)), cache.stamp());
+        assertTrue(cache.isComplete());
+
+        cache.loadAll(List.of(product(1, 1), product(2, 2), product(3, 3)), cache.stamp());
+        assertFalse(cache.isComplete());
+        assertTrue(cache.getAll().isEmpty());
+    }
+
+    @Test
+    void replacingAnEntryKeepsTheCacheComplete() {
+        ProductCatalogCache cache = new ProductCatalogCache(100);
+        cache.loadAll(List.of(product(1, 1), product(2, 2)), cache.stamp());
+
+        assertTrue(cache.putLoaded(product(2, 9), cache.stamp()));
+        assertTrue(cache.isComplete());
+        assertEquals(9, cache.getAll().orElseThrow().get(1).getStockQuantity());
+
+        cache.discard(2);
+        assertFalse(cache.isComplete());
+    }
+}
@@ -0,0 +1,80 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.dto.response.ProductResponse;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The product listing never reloads the catalog cache itself: refreshing one product replaces its
+ * entry in place, an incomplete cache is answered from the database, and only the scheduled
+ * reloadCatalogCache makes it whole again.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ProductCatalogReloadTest {
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void refreshingAProductKeepsTheCacheComplete() {
+        Product product = newProduct();
+        productService.reloadCatalogCache();
+        assertTrue(productCatalogCache.isComplete());
+
+        jdbcTemplate.update("UPDATE products SET price = 123000 WHERE product_id = ?", product.getProductId());
+        productService.refreshProduct(product.getProductId());
+
+        assertTrue(productCatalogCache.isComplete());
+        assertEquals(0, new BigDecimal("123000").compareTo(find(product).getPrice()));
+    }
+
+    @Test
+    void incompleteCacheIsAnsweredFromTheDatabaseUntilTheScheduledReload() {
+        Product product = newProduct();
+        productService.reloadCatalogCache();
+        productCatalogCache.discard(product.getProductId());
+
+        assertNotNull(find(product));
+        assertFalse(productCatalogCache.isComplete());
+
+        productService.reloadCatalogCache();
+        assertTrue(productCatalogCache.isComplete());
+        assertNotNull(find(product));
+    }
+
+    private ProductResponse find(Product product) {
+        return productService.getAllProducts().stream()
+                .filter(r -> r.getProductId().equals(product.getProductId()))
+                .findFirst().orElse(null);
+    }
+
+    private Product newProduct() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return productRepository.save(Product.builder()
+                .name("Gậy thử " + suffix)
+                .slug("gay-thu-" + suffix)
+                .sku("RELOAD-" + suffix)
+                .price(new BigDecimal("100000"))
+                .stockQuantity(5)
+                .build());
+    }
+}
@@ -0,0 +1,163 @@
+package swd.billiardshop.service;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import swd.billiardshop.dto.response.ProductImageResponse;
+import swd.billiardshop.dto.response.ProductResponse;
+import swd.billiardshop.entity.Category;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.entity.ProductImage;
+import swd.billiardshop.entity.User;
+import swd.billiardshop.repository.CategoryRepository;
+import swd.billiardshop.repository.ProductImageRepository;
+import swd.billiardshop.repository.ProductRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A page of products loaded as entities (with their eager category, creator and image rows) and through
+ * the findResponses column projection must give the same responses. The latency and allocation
+ * comparison of the two only runs with -Dbenchmark=true and logs its figures.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ProductProjectionBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(ProductProjectionBenchmarkTest.class);
+    private static final int PAGE = 50;
+    private static final int IMAGES = 3;
+    private static final int WARMUP = 500;
+    private static final int ITERATIONS = 2000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Specification<Product> inCategory;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User creator = userRepository.save(User.builder()
+                .username("catalog-" + suffix)
+                .email("catalog-" + suffix + "@example.com")
+                .passwordHash("x")
+                .build());
+        Category category = categoryRepository.save(Category.builder()
+                .name("Cơ " + suffix)
+                .slug("co-" + suffix)
+                .createdBy(creator)
+                .build());
+        for (int i = 0; i < PAGE; i++) {
+            Product product = productRepository.save(Product.builder()
+                    .category(category)
+                    .createdBy(creator)
+                    .name("Cơ thử " + suffix + " " + i)
+                    .slug("co-thu-" + suffix + "-" + i)
+                    .sku("PROJ-" + suffix + "-" + i)
+                    .description("Mô tả " + i)
+                    .brand("Predator")
+                    .price(new BigDecimal("1500000").add(BigDecimal.valueOf(i)))
+                    .stockQuantity(10 + i)
+                    .build());
+            for (int k = 0; k < IMAGES; k++) {
+                productImageRepository.save(ProductImage.builder()
+                        .product(product)
+                        .imageUrl("https://img.example.com/" + suffix + "/" + i + "-" + k + ".jpg")
+                        .altText("Ảnh " + k)
+                        .sortOrder(k)
+                        .isPrimary(k == 0)
+                        .build());
+            }
+        }
+        Integer categoryId = category.getCategoryId();
+        inCategory = (root, query, cb) -> cb.equal(root.get("category").get("categoryId"), categoryId);
+    }
+
+    @Test
+    void projectionGivesTheSameResponsesAsTheEntities() {
+        List<ProductResponse> entities = viaEntities();
+        List<ProductResponse> projected = viaProjection();
+
+        assertEquals(PAGE, projected.size());
+        assertEquals(IMAGES, projected.get(0).getImages().size());
+        assertEquals(entities, projected);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = LatencyHarness.ENABLED, matches = "true")
+    void compareEntityAndProjectionPageLoads() throws Exception {
+        // two rounds so the second is not skewed by whichever path warmed the JIT first
+        for (int round = 1; round <= 2; round++) {
+            LatencyHarness.Result entities = LatencyHarness.measure(PAGE + " products as entities", WARMUP, ITERATIONS, i -> viaEntities());
+            LatencyHarness.Result projected = LatencyHarness.measure(PAGE + " products via findResponses", WARMUP, ITERATIONS, i -> viaProjection());
+            log.info("round {}: {}", round, entities);
+            log.info("round {}: {}", round, projected);
+        }
+    }
+
+    /**
+     * The list path before findResponses: Product and ProductImage entities, images fetched with one IN (...) query.
+     */
+    private List<ProductResponse> viaEntities() {
+        ProductService target = AopTestUtils.getTargetObject(productService);
+        List<Product> products = productRepository.findAll(inCategory, Sort.by("productId"));
+        List<Integer> ids = products.stream().map(Product::getProductId).collect(Collectors.toList());
+        Map<Integer, List<ProductImage>> images = entityManager
+                .createQuery("select i from ProductImage i where i.product.productId in :ids order by i.sortOrder asc", ProductImage.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .collect(Collectors.groupingBy(img -> img.getProduct().getProductId()));
+        List<ProductResponse> responses = new ArrayList<>(products.size());
+        for (Product p : products) {
+            ProductResponse r = ReflectionTestUtils.invokeMethod(target, "toScalarResponse", p);
+            r.setImages(images.getOrDefault(p.getProductId(), List.of()).stream().map(img -> {
+                ProductImageResponse ir = new ProductImageResponse();
+                ir.setImageId(img.getImageId());
+                ir.setImageUrl(img.getImageUrl());
+                ir.setAltText(img.getAltText());
+                ir.setIsPrimary(img.getIsPrimary());
+                return ir;
+            }).collect(Collectors.toList()));
+            responses.add(r);
+        }
+        return responses;
+    }
+
+    private List<ProductResponse> viaProjection() {
+        ProductService target = AopTestUtils.getTargetObject(productService);
+        return ReflectionTestUtils.invokeMethod(target, "withImages", productRepository.findResponses(inCategory, Sort.by("productId"), 0, PAGE));
+    }
+}
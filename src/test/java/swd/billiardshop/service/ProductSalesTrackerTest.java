@@ -0,0 +1,93 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.entity.Category;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.repository.CategoryRepository;
+import swd.billiardshop.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Category rankings kept by a tracker with top-K 2, updated by flushes of recorded sales.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class ProductSalesTrackerTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private ProductSalesTracker tracker;
+    private Category category;
+    private Integer a;
+    private Integer b;
+    private Integer c;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        category = categoryRepository.save(Category.builder().name("Bán chạy " + suffix).slug("ban-chay-" + suffix).build());
+        a = newProduct(suffix + "-a", 5);
+        b = newProduct(suffix + "-b", 3);
+        c = newProduct(suffix + "-c", 1);
+        tracker = new ProductSalesTracker(jdbcTemplate, new ProductCatalogCache(100), new ProductSearchIndex(), 2);
+        tracker.loadTotals();
+    }
+
+    private List<Integer> top() {
+        return tracker.topSellers(category.getCategoryId(), 10);
+    }
+
+    @Test
+    void productBelowTheTopKMovesUpWhenALeaderIsCancelled() {
+        assertEquals(List.of(a, b), top());
+
+        tracker.record(Map.of(a, -5));
+        tracker.flush();
+        assertEquals(List.of(b, c), top());
+
+        tracker.record(Map.of(c, 10));
+        tracker.flush();
+        assertEquals(List.of(c, b), top());
+    }
+
+    @Test
+    void productMovedToAnotherCategoryLeavesTheOldRanking() {
+        Category other = categoryRepository.save(Category.builder().name("Khác " + a).slug("khac-" + UUID.randomUUID()).build());
+        jdbcTemplate.update("UPDATE products SET category_id = ? WHERE product_id = ?", other.getCategoryId(), a);
+
+        tracker.record(Map.of(a, 1));
+        tracker.flush();
+        assertEquals(List.of(b, c), top());
+        assertEquals(List.of(a), tracker.topSellers(other.getCategoryId(), 10));
+    }
+
+    private Integer newProduct(String slug, int sales) {
+        return productRepository.save(Product.builder()
+                .category(category)
+                .name("Bán chạy " + slug)
+                .slug("ban-chay-" + slug)
+                .sku("SALES-" + slug)
+                .price(new BigDecimal("100000"))
+                .stockQuantity(10)
+                .salesCount(sales)
+                .build()).getProductId();
+    }
+}
@@ -0,0 +1,54 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import swd.billiardshop.dto.request.ProductSearchRequest;
+import swd.billiardshop.dto.response.ProductResponse;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        ProductResponse cue = new ProductResponse();
+        cue.setProductId(1);
+        cue.setName("Predator cue");
+        cue.setPrice(new BigDecimal("1000000"));
+        cue.setStockQuantity(3);
+        ProductResponse chalk = new ProductResponse();
+        chalk.setProductId(2);
+        chalk.setName("Blue chalk");
+        chalk.setPrice(new BigDecimal("50000"));
+        chalk.setStockQuantity(3);
+        index.rebuild(List.of(cue, chalk));
+    }
+
+    private List<Integer> search(String q) {
+        ProductSearchRequest criteria = new ProductSearchRequest();
+        criteria.setQ(q);
+        return index.search(criteria, false).getProductIds();
+    }
+
+    @Test
+    void blankQueryDoesNotFilter() {
+        assertEquals(2, search(null).size());
+        assertEquals(2, search("  ").size());
+    }
+
+    @Test
+    void queryWithoutSearchableTermsMatchesNothing() {
+        assertTrue(search("!!!").isEmpty());
+        assertTrue(search(" - ").isEmpty());
+    }
+
+    @Test
+    void termsMatchByPrefix() {
+        assertEquals(List.of(1), search("pred"));
+        assertEquals(List.of(2), search("chalk!"));
+    }
+}
@@ -0,0 +1,140 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.entity.Order;
+import swd.billiardshop.entity.Promotion;
+import swd.billiardshop.entity.User;
+import swd.billiardshop.enums.PromotionType;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+import swd.billiardshop.repository.OrderRepository;
+import swd.billiardshop.repository.PromotionRepository;
+import swd.billiardshop.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A capped code redeemed by many checkouts at once must never be issued more often than its limits allow.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PromotionRedemptionStressTest {
+    private static final int REDEMPTIONS = 200;
+    private static final int USAGE_LIMIT = 25;
+
+    @Autowired
+    private PromotionService promotionService;
+
+    @Autowired
+    private PromotionRuleTable promotionRuleTable;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentRedemptionsStopAtTheUsageLimit() throws Exception {
+        Promotion promotion = newPromotion(USAGE_LIMIT, null);
+        User user = newUser();
+        List<Order> orders = newOrders(user, REDEMPTIONS);
+
+        int redeemed = redeemConcurrently(promotion, user, orders);
+
+        assertEquals(USAGE_LIMIT, redeemed);
+        assertEquals(USAGE_LIMIT, usedCount(promotion));
+        assertEquals(USAGE_LIMIT, usageRows(promotion));
+    }
+
+    @Test
+    void concurrentRedemptionsByOneUserStopAtThePerUserLimit() throws Exception {
+        Promotion promotion = newPromotion(null, 2);
+        User user = newUser();
+        List<Order> orders = newOrders(user, 40);
+
+        int redeemed = redeemConcurrently(promotion, user, orders);
+
+        assertEquals(2, redeemed);
+        assertEquals(2, usedCount(promotion));
+        assertEquals(2, usageRows(promotion));
+    }
+
+    private int redeemConcurrently(Promotion promotion, User user, List<Order> orders) throws Exception {
+        AtomicInteger redeemed = new AtomicInteger();
+        InventoryOversellStressTest.runConcurrently(orders.size(), i -> {
+            try {
+                promotionService.usePromotion(promotion.getPromotionId(), user.getUserId(), orders.get(i).getOrderId(), new BigDecimal("10000"));
+                redeemed.incrementAndGet();
+            } catch (AppException e) {
+                assertEquals(ErrorCode.PROMOTION_USED_UP, e.getErrorCode());
+            }
+        });
+        return redeemed.get();
+    }
+
+    private Promotion newPromotion(Integer usageLimit, Integer perUserLimit) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Promotion promotion = promotionRepository.save(Promotion.builder()
+                .code("LAUNCH-" + suffix)
+                .name("Khai trương " + suffix)
+                .type(PromotionType.FIXED_AMOUNT)
+                .discountValue(new BigDecimal("10000"))
+                .usageLimit(usageLimit)
+                .perUserLimit(perUserLimit)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(1))
+                .build());
+        // the per-user check reads the in-memory rule table
+        promotionRuleTable.refresh();
+        return promotion;
+    }
+
+    private User newUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return userRepository.save(User.builder()
+                .username("redeemer-" + suffix)
+                .email("redeemer-" + suffix + "@example.com")
+                .passwordHash("x")
+                .build());
+    }
+
+    private List<Order> newOrders(User user, int n) {
+        List<Order> orders = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            orders.add(Order.builder()
+                    .orderNumber("PROMO-" + UUID.randomUUID())
+                    .user(user)
+                    .shippingAddress("test")
+                    .subtotal(new BigDecimal("500000"))
+                    .totalAmount(new BigDecimal("490000"))
+                    .build());
+        }
+        return orderRepository.saveAll(orders);
+    }
+
+    private int usedCount(Promotion promotion) {
+        return jdbcTemplate.queryForObject("SELECT used_count FROM promotions WHERE promotion_id = ?", Integer.class, promotion.getPromotionId());
+    }
+
+    private int usageRows(Promotion promotion) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM promotion_usage WHERE promotion_id = ?", Integer.class, promotion.getPromotionId());
+    }
+}
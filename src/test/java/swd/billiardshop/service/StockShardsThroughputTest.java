@@ -0,0 +1,174 @@
+package swd.billiardshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import swd.billiardshop.dto.response.CartItemResponse;
+import swd.billiardshop.entity.Product;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+import swd.billiardshop.repository.ProductRepository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checkouts of a hot product with single-row stock and with sharded stock, which must both sell exactly
+ * the stock on hand, also while it is resharded. The throughput comparison only runs with
+ * -Dbenchmark=true and logs its figures instead of asserting them: H2 locks rows differently from
+ * InnoDB, so point the test profile at MySQL for numbers that mean anything.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class StockShardsThroughputTest {
+    private static final Logger log = LoggerFactory.getLogger(StockShardsThroughputTest.class);
+    private static final int CHECKOUTS = 2000;
+    private static final int SHARDS = 16;
+
+    @Autowired
+    private InventoryPort inventoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private InventoryLogService inventoryLogService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void singleRowAndShardedStockBothSellExactlyTheStock() throws Exception {
+        Product single = newProduct(CHECKOUTS);
+        Product sharded = newProduct(CHECKOUTS);
+        productService.setStockShards(sharded.getProductId(), SHARDS);
+
+        checkouts(single, 300_000);
+        checkouts(sharded, 400_000);
+
+        assertEquals(0, stockOf(single));
+        assertEquals(0, shardTotal(sharded));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void compareSingleRowAndShardedCheckoutThroughput() throws Exception {
+        Product single = newProduct(CHECKOUTS);
+        Product sharded = newProduct(CHECKOUTS);
+        productService.setStockShards(sharded.getProductId(), SHARDS);
+
+        double singleRate = checkouts(single, 700_000);
+        double shardedRate = checkouts(sharded, 800_000);
+        log.info("Checkout throughput: single row {}/s, {} shards {}/s", Math.round(singleRate), SHARDS, Math.round(shardedRate));
+    }
+
+    @Test
+    void reshardingDuringCheckoutsKeepsTheTotal() throws Exception {
+        Product product = newProduct(1000);
+        productService.setStockShards(product.getProductId(), 4);
+        AtomicInteger sold = new AtomicInteger();
+
+        InventoryOversellStressTest.runConcurrently(400, i -> {
+            if (i % 50 == 0) {
+                productService.setStockShards(product.getProductId(), 2 + i % 7);
+                return;
+            }
+            try {
+                inventoryService.reserveStock(500_000 + i, List.of(line(product, 1)));
+                sold.incrementAndGet();
+            } catch (AppException e) {
+                // on H2 a checkout that waited on a reshard's locks can miss the re-inserted shards and be refused;
+                // refused checkouts take nothing, and only the total is under test here
+                assertEquals(ErrorCode.INSUFFICIENT_STOCK, e.getErrorCode());
+            }
+        });
+
+        assertEquals(1000 - sold.get(), shardTotal(product));
+    }
+
+    @Test
+    void reconcileNeverPutsBackAnOlderShardSum() throws Exception {
+        Product product = newProduct(1000);
+        productService.setStockShards(product.getProductId(), 4);
+        AtomicInteger sold = new AtomicInteger();
+
+        InventoryOversellStressTest.runConcurrently(300, i -> {
+            if (i == 150) {
+                productService.setStockShards(product.getProductId(), 0);
+            } else if (i % 10 == 0) {
+                inventoryLogService.reconcileShardedStock();
+            } else {
+                try {
+                    inventoryService.reserveStock(600_000 + i, List.of(line(product, 1)));
+                    sold.incrementAndGet();
+                } catch (AppException e) {
+                    // refused while waiting on the reshard, as in reshardingDuringCheckoutsKeepsTheTotal
+                    assertEquals(ErrorCode.INSUFFICIENT_STOCK, e.getErrorCode());
+                }
+            }
+        });
+        inventoryLogService.reconcileShardedStock();
+
+        assertEquals(0, shardRows(product));
+        assertEquals(1000 - sold.get(), stockOf(product));
+    }
+
+    private double checkouts(Product product, int firstOrderId) throws Exception {
+        AtomicInteger failed = new AtomicInteger();
+        long start = System.nanoTime();
+        InventoryOversellStressTest.runConcurrently(CHECKOUTS, i -> {
+            try {
+                inventoryService.reserveStock(firstOrderId + i, List.of(line(product, 1)));
+            } catch (AppException e) {
+                failed.incrementAndGet();
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(0, failed.get());
+        return CHECKOUTS / seconds;
+    }
+
+    private Product newProduct(int stock) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        return productRepository.save(Product.builder()
+                .name("Bàn thử tải " + suffix)
+                .slug("ban-thu-tai-" + suffix)
+                .sku("BENCH-" + suffix)
+                .price(new BigDecimal("100000"))
+                .stockQuantity(stock)
+                .build());
+    }
+
+    private int stockOf(Product product) {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE product_id = ?", Integer.class, product.getProductId());
+    }
+
+    private int shardRows(Product product) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_stock_shards WHERE product_id = ?", Integer.class, product.getProductId());
+    }
+
+    private int shardTotal(Product product) {
+        Integer total = jdbcTemplate.queryForObject("SELECT SUM(quantity) FROM product_stock_shards WHERE product_id = ?", Integer.class, product.getProductId());
+        return total == null ? stockOf(product) : total;
+    }
+
+    private static CartItemResponse line(Product product, int quantity) {
+        CartItemResponse item = new CartItemResponse();
+        item.setProductId(product.getProductId());
+        item.setQuantity(quantity);
+        item.setUnitPrice(product.getPrice());
+        return item;
+    }
+}
@@ -0,0 +1,39 @@
+package swd.billiardshop.util;
+
+import org.junit.jupiter.api.Test;
+import swd.billiardshop.exception.AppException;
+import swd.billiardshop.exception.ErrorCode;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorUtilTest {
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void issuedTokenRoundTrips() {
+        LocalDateTime createdAt = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+        CursorUtil.Cursor c = CursorUtil.decode(CursorUtil.encode("newest", createdAt, 7), "newest");
+
+        assertEquals(7, c.getId());
+        assertEquals(createdAt, c.parseValue(LocalDateTime::parse));
+    }
+
+    @Test
+    void unparsableSortValueIsAnInvalidCursor() {
+        CursorUtil.Cursor price = CursorUtil.decode(token("price_asc\u001Fabc\u001F7"), "price_asc");
+        AppException e = assertThrows(AppException.class, () -> price.parseValue(BigDecimal::new));
+        assertEquals(ErrorCode.INVALID_REQUEST, e.getErrorCode());
+
+        CursorUtil.Cursor newest = CursorUtil.decode(token("newest\u001Fyesterday\u001F7"), "newest");
+        e = assertThrows(AppException.class, () -> newest.parseValue(LocalDateTime::parse));
+        assertEquals(ErrorCode.INVALID_REQUEST, e.getErrorCode());
+    }
+}